@@ -0,0 +1,33 @@
+package com.github.collinalpert.java2db.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables the entity cache of the service of the annotated entity.
+ * Entities which are read by their id or using {@code getSingle} are kept in memory and are returned from there until they expire
+ * or are changed through the service. This is useful for reference data which rarely changes.
+ *
+ * @author Collin Alpert
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+	/**
+	 * Configures the duration in seconds after which a cached entity is read from the database again.
+	 * Per default, this is five minutes.
+	 *
+	 * @return The duration an entity is cached for in seconds.
+	 */
+	long expiration() default 300;
+
+	/**
+	 * Configures the maximum amount of entities in the cache. When it is exceeded, the least recently used entities are removed.
+	 *
+	 * @return The maximum amount of cached entities.
+	 */
+	int maximumSize() default 1000;
+}
@@ -1,5 +1,7 @@
 package com.github.collinalpert.java2db.annotations;
 
+import com.github.collinalpert.java2db.queries.FetchStrategy;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -17,10 +19,14 @@ import java.lang.annotation.Target;
  * 2) Foreign keys to a table with static values that can be represented by an enum because they don't change.
  * In that case the enum must extend {@link com.github.collinalpert.java2db.contracts.IdentifiableEnum} and map the ids from the table.
  *
+ * For entities, the {@code fetch} parameter specifies how they are loaded per default. Enums are never loaded from the database.
+ *
  * @author Collin Alpert
  */
 @Target(ElementType.FIELD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ForeignKeyEntity {
 	String value();
+
+	FetchStrategy fetch() default FetchStrategy.JOIN;
 }
@@ -0,0 +1,20 @@
+package com.github.collinalpert.java2db.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field as lazily loaded, meaning its column is not selected when the entity is queried and the field keeps its default value.
+ * This is meant for large columns like {@code TEXT} or {@code BLOB} which are not needed in most cases.
+ * The values can be loaded afterwards using {@link com.github.collinalpert.java2db.services.BaseService#loadLazy(java.util.List, com.github.collinalpert.lambda2sql.functions.SqlFunction)},
+ * or be read as a stream using {@link com.github.collinalpert.java2db.services.BaseService#openStream(long, com.github.collinalpert.lambda2sql.functions.SqlFunction)}.
+ * Updating an entity does not overwrite a lazy column which was not loaded, unless its field was changed.
+ *
+ * @author Collin Alpert
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Lazy {
+}
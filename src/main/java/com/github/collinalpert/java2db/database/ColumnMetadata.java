@@ -0,0 +1,124 @@
+package com.github.collinalpert.java2db.database;
+
+import com.github.collinalpert.java2db.annotations.DefaultIfNull;
+import com.github.collinalpert.java2db.annotations.Lazy;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+
+import java.lang.reflect.Field;
+
+/**
+ * Describes a field of an entity which corresponds to a column of its table.
+ * Instances are created once per entity class by the {@link EntityMetadata} and are immutable.
+ *
+ * @author Collin Alpert
+ */
+public class ColumnMetadata {
+
+	/**
+	 * The field representing the column.
+	 */
+	private final Field field;
+
+	/**
+	 * Reads and writes the field in entities.
+	 */
+	private final FieldAccessor accessor;
+
+	/**
+	 * The name of the column on the database.
+	 */
+	private final String columnName;
+
+	/**
+	 * Determines if this column is the id column declared in {@link BaseEntity}.
+	 */
+	private final boolean isId;
+
+	/**
+	 * Determines if the database-default should be used in create statements when the field is {@code null}.
+	 */
+	private final boolean defaultIfNullOnCreate;
+
+	/**
+	 * Determines if the database-default should be used in update statements when the field is {@code null}.
+	 */
+	private final boolean defaultIfNullOnUpdate;
+
+	/**
+	 * Determines if this column is not selected when the entity is queried.
+	 */
+	private final boolean isLazy;
+
+	ColumnMetadata(Field field, String columnName) {
+		this.field = field;
+		this.accessor = new FieldAccessor(field);
+		this.columnName = columnName;
+		this.isId = field.getDeclaringClass() == BaseEntity.class;
+
+		var defaultIfNull = field.getAnnotation(DefaultIfNull.class);
+		this.defaultIfNullOnCreate = defaultIfNull != null && defaultIfNull.onCreate();
+		this.defaultIfNullOnUpdate = defaultIfNull != null && defaultIfNull.onUpdate();
+		this.isLazy = field.getAnnotation(Lazy.class) != null;
+	}
+
+	public Field getField() {
+		return field;
+	}
+
+	public FieldAccessor getAccessor() {
+		return accessor;
+	}
+
+	public String getFieldName() {
+		return field.getName();
+	}
+
+	public Class<?> getType() {
+		return field.getType();
+	}
+
+	public String getColumnName() {
+		return columnName;
+	}
+
+	public boolean isId() {
+		return isId;
+	}
+
+	public boolean isDefaultIfNullOnCreate() {
+		return defaultIfNullOnCreate;
+	}
+
+	public boolean isDefaultIfNullOnUpdate() {
+		return defaultIfNullOnUpdate;
+	}
+
+	public boolean isLazy() {
+		return isLazy;
+	}
+
+	/**
+	 * Gets the value of this column from an entity.
+	 *
+	 * @param entity The entity to get the value from.
+	 * @return The value of the field in the entity.
+	 */
+	public Object getValue(Object entity) {
+		return accessor.get(entity);
+	}
+
+	/**
+	 * Sets the value of this column in an entity.
+	 *
+	 * @param entity The entity to set the value in.
+	 * @param value  The value to set.
+	 */
+	public void setValue(Object entity, Object value) {
+		accessor.set(entity, value);
+	}
+
+	@Override
+	public String toString() {
+		return columnName;
+	}
+}
@@ -0,0 +1,300 @@
+package com.github.collinalpert.java2db.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of physical database connections which backs every {@link DBConnection}.
+ * Connections are validated when they are borrowed after having been idle for a while,
+ * and are closed once they exceed the configured idle timeout or maximum lifetime.
+ *
+ * @author Collin Alpert
+ */
+class ConnectionPool {
+
+	/**
+	 * Connections which have been idle for less than this time are handed out without being validated first.
+	 */
+	private static final long VALIDATION_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+	/**
+	 * The time in seconds a connection has to answer a validation request.
+	 */
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+	/**
+	 * The interval in which idle connections are checked for eviction.
+	 */
+	private static final long HOUSEKEEPING_INTERVAL_SECONDS = 30;
+
+	private static volatile ConnectionPool instance;
+
+	private final String connectionString;
+	private final Properties properties;
+	private final int maximumPoolSize;
+	private final Semaphore permits;
+	private final ConcurrentLinkedDeque<PooledConnection> idleConnections;
+	private final ScheduledExecutorService housekeeper;
+	private final AtomicInteger activeConnections;
+	private final AtomicInteger pendingThreads;
+	private final AtomicLong createdConnections;
+	private final AtomicLong closedConnections;
+	private final AtomicLong borrowedConnections;
+	private final AtomicLong timeouts;
+
+	private ConnectionPool() {
+		this.connectionString = String.format("jdbc:mysql://%s:%d/%s?serverTimezone=UTC", DBConnection.HOST, DBConnection.PORT, DBConnection.DATABASE);
+		this.properties = new Properties();
+		this.properties.setProperty("user", DBConnection.USERNAME);
+		this.properties.setProperty("password", DBConnection.PASSWORD);
+		if (DBConnection.PREPARED_STATEMENT_CACHE_SIZE > 0) {
+			// Lets the driver prepare statements on the server and keep them per connection, so every statement shape is only parsed once.
+			this.properties.setProperty("useServerPrepStmts", "true");
+			this.properties.setProperty("cachePrepStmts", "true");
+			this.properties.setProperty("prepStmtCacheSize", Integer.toString(DBConnection.PREPARED_STATEMENT_CACHE_SIZE));
+			this.properties.setProperty("prepStmtCacheSqlLimit", "8192");
+		}
+
+		// Statements with a fetch size read their result through a server-side cursor instead of loading it entirely.
+		// Cursors require server-side prepared statements, so the driver prepares every statement on the server, even if the statement cache is disabled.
+		this.properties.setProperty("useCursorFetch", "true");
+		// Lets the driver send a batch of inserts as multi-row statements instead of one statement per row.
+		this.properties.setProperty("rewriteBatchedStatements", "true");
+		this.maximumPoolSize = Math.max(1, DBConnection.MAX_POOL_SIZE);
+		this.permits = new Semaphore(this.maximumPoolSize, true);
+		this.idleConnections = new ConcurrentLinkedDeque<>();
+		this.activeConnections = new AtomicInteger();
+		this.pendingThreads = new AtomicInteger();
+		this.createdConnections = new AtomicLong();
+		this.closedConnections = new AtomicLong();
+		this.borrowedConnections = new AtomicLong();
+		this.timeouts = new AtomicLong();
+		this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			var thread = new Thread(runnable, "java2db-pool-housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.housekeeper.scheduleAtFixedRate(this::evictIdleConnections, HOUSEKEEPING_INTERVAL_SECONDS, HOUSEKEEPING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Gets the pool instance. It is created with the settings from the {@link DBConnection} the first time this method is called.
+	 *
+	 * @return The connection pool.
+	 */
+	static synchronized ConnectionPool getInstance() {
+		if (instance == null) {
+			try {
+				Class.forName("com.mysql.cj.jdbc.Driver");
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException("The MySQL driver could not be found on the classpath.", e);
+			}
+
+			instance = new ConnectionPool();
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Closes all idle connections and discards the current pool instance.
+	 * Connections which are borrowed at the time of this call will be closed once they are returned.
+	 * The next connection request will create a new pool using the current settings.
+	 */
+	static synchronized void shutdown() {
+		if (instance == null) {
+			return;
+		}
+
+		instance.housekeeper.shutdownNow();
+		PooledConnection connection;
+		while ((connection = instance.idleConnections.pollFirst()) != null) {
+			instance.discard(connection);
+		}
+
+		instance = null;
+	}
+
+	/**
+	 * Borrows a connection from the pool. If no connection is available and the pool is exhausted,
+	 * this method waits for a connection to be returned for a maximum of {@link DBConnection#CONNECTION_TIMEOUT}.
+	 *
+	 * @return A validated connection.
+	 * @throws SQLException if no connection becomes available in time or a new connection cannot be opened.
+	 */
+	PooledConnection borrow() throws SQLException {
+		pendingThreads.incrementAndGet();
+		try {
+			if (!permits.tryAcquire(DBConnection.CONNECTION_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS)) {
+				timeouts.incrementAndGet();
+				throw new SQLTimeoutException(String.format("Timed out after %d ms waiting for a connection. All %d connections of the pool are in use.", DBConnection.CONNECTION_TIMEOUT.toMillis(), this.maximumPoolSize));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection.", e);
+		} finally {
+			pendingThreads.decrementAndGet();
+		}
+
+		try {
+			PooledConnection connection;
+			while ((connection = idleConnections.pollFirst()) != null) {
+				if (isUsable(connection)) {
+					break;
+				}
+
+				discard(connection);
+			}
+
+			if (connection == null) {
+				connection = new PooledConnection(DriverManager.getConnection(this.connectionString, this.properties));
+				createdConnections.incrementAndGet();
+			}
+
+			activeConnections.incrementAndGet();
+			borrowedConnections.incrementAndGet();
+			return connection;
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a borrowed connection to the pool. Broken or expired connections are closed instead.
+	 *
+	 * @param connection The connection to return.
+	 */
+	void release(PooledConnection connection) {
+		activeConnections.decrementAndGet();
+		try {
+			if (instance != this || connection.exceedsLifetime(System.nanoTime()) || !connection.reset()) {
+				discard(connection);
+				return;
+			}
+
+			connection.lastUsed = System.nanoTime();
+			idleConnections.offerFirst(connection);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * @return A snapshot of the current state of this pool.
+	 */
+	PoolStatistics getStatistics() {
+		return new PoolStatistics(this.maximumPoolSize, activeConnections.get(), idleConnections.size(), pendingThreads.get(),
+				createdConnections.get(), closedConnections.get(), borrowedConnections.get(), timeouts.get());
+	}
+
+	/**
+	 * Checks if an idle connection can be handed out. Connections which have been idle for a while are validated against the database.
+	 *
+	 * @param connection The connection to check.
+	 * @return {@code True} if the connection can be used, {@code false} if it should be discarded.
+	 */
+	private boolean isUsable(PooledConnection connection) {
+		var now = System.nanoTime();
+		if (connection.exceedsLifetime(now) || connection.exceedsIdleTimeout(now)) {
+			return false;
+		}
+
+		if (now - connection.lastUsed < VALIDATION_THRESHOLD_NANOS) {
+			return true;
+		}
+
+		try {
+			return connection.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Closes idle connections which have exceeded the idle timeout or their maximum lifetime.
+	 */
+	private void evictIdleConnections() {
+		var now = System.nanoTime();
+		for (var connection : idleConnections) {
+			if ((connection.exceedsLifetime(now) || connection.exceedsIdleTimeout(now)) && idleConnections.remove(connection)) {
+				discard(connection);
+			}
+		}
+	}
+
+	private void discard(PooledConnection connection) {
+		closedConnections.incrementAndGet();
+		try {
+			connection.connection.close();
+		} catch (SQLException e) {
+			System.err.println("Could not close pooled database connection");
+		}
+	}
+
+	/**
+	 * A physical connection along with the information needed to decide when it should be evicted.
+	 */
+	static final class PooledConnection {
+
+		private final Connection connection;
+		private final long createdAt;
+		private volatile long lastUsed;
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+			this.createdAt = System.nanoTime();
+			this.lastUsed = this.createdAt;
+		}
+
+		Connection getConnection() {
+			return connection;
+		}
+
+		private boolean exceedsLifetime(long now) {
+			return now - createdAt > toNanos(DBConnection.MAX_LIFETIME);
+		}
+
+		private boolean exceedsIdleTimeout(long now) {
+			return now - lastUsed > toNanos(DBConnection.IDLE_TIMEOUT);
+		}
+
+		/**
+		 * Restores the default state of a connection so the next borrower does not inherit changes from the previous one.
+		 *
+		 * @return {@code True} if the connection could be reset, {@code false} if it is closed or broken.
+		 */
+		private boolean reset() {
+			try {
+				if (connection.isClosed()) {
+					return false;
+				}
+
+				if (!connection.getAutoCommit()) {
+					connection.rollback();
+					connection.setAutoCommit(true);
+				}
+
+				return true;
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+
+		private static long toNanos(Duration duration) {
+			return duration == null ? Long.MAX_VALUE : duration.toNanos();
+		}
+	}
+}
@@ -2,15 +2,22 @@ package com.github.collinalpert.java2db.database;
 
 import com.github.collinalpert.java2db.exceptions.ConnectionFailedException;
 import com.github.collinalpert.java2db.modules.LoggingModule;
+import com.github.collinalpert.java2db.utilities.ThrowableRunnable;
 import com.mysql.cj.exceptions.CJCommunicationsException;
 import com.mysql.cj.jdbc.exceptions.CommunicationsException;
 
 import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * @author Collin Alpert
@@ -54,31 +61,111 @@ public class DBConnection implements Closeable {
 	 */
 	public static boolean LOG_QUERIES = true;
 
+	/**
+	 * The maximum amount of physical connections which are kept open by the connection pool at the same time.
+	 * Like the other connection settings, this has to be set before the first connection is opened.
+	 */
+	public static int MAX_POOL_SIZE = 10;
+
+	/**
+	 * The maximum time to wait for a free connection when all connections of the pool are in use.
+	 * If no connection becomes available in this time, a {@link ConnectionFailedException} is thrown.
+	 */
+	public static Duration CONNECTION_TIMEOUT = Duration.ofSeconds(30);
+
+	/**
+	 * The time an unused connection may stay open in the pool before it is closed.
+	 */
+	public static Duration IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+	/**
+	 * The maximum time a physical connection is kept open before it is replaced with a new one.
+	 * This should be shorter than the {@code wait_timeout} configured on the MySQL server.
+	 */
+	public static Duration MAX_LIFETIME = Duration.ofMinutes(30);
+
+	/**
+	 * The amount of prepared statements which are cached per physical connection.
+	 * Statements with the same SQL are only prepared once on a connection and are then reused with different parameters.
+	 * A value of 0 disables the cache. Statements are still prepared on the server then, since streamed queries require server-side prepared statements.
+	 */
+	public static int PREPARED_STATEMENT_CACHE_SIZE = 250;
+
+	/**
+	 * The amount of rows which are fetched from the database at once when a query is streamed, for example with {@code toStream()}.
+	 * Streamed queries read their result through a cursor on the server, so only this many rows are held in memory at the same time.
+	 */
+	public static int STREAM_FETCH_SIZE = 1000;
+
+	/**
+	 * The maximum amount of rows which are sent to the database in one batch when multiple entities are written at once.
+	 * Larger lists are split into several batches.
+	 */
+	public static int BATCH_SIZE = 1000;
+
+	/**
+	 * The approximate maximum size in bytes of the values sent to the database in one batch.
+	 * This should stay below the {@code max_allowed_packet} configured on the MySQL server.
+	 */
+	public static int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+
+	/**
+	 * The maximum amount of ids which are read in one query when foreign key entities are loaded in batches.
+	 * Larger amounts of ids are split into several queries.
+	 */
+	public static int FETCH_BATCH_SIZE = 500;
+
 	static {
 		DriverManager.setLoginTimeout(5);
 		loggingModule = new LoggingModule();
 	}
 
+	private final List<Statement> statements;
+	private ConnectionPool pool;
+	private ConnectionPool.PooledConnection pooledConnection;
 	private Connection connection;
 	private boolean isConnectionValid;
 
+	/**
+	 * Borrows a connection from the connection pool. It is returned to the pool when this object is closed.
+	 */
 	public DBConnection() {
+		this.statements = new ArrayList<>();
 		try {
-			var connectionString = String.format("jdbc:mysql://%s:%d/%s?serverTimezone=UTC", HOST, PORT, DATABASE);
-			Class.forName("com.mysql.cj.jdbc.Driver");
-			System.setProperty("user", USERNAME);
-			System.setProperty("password", PASSWORD);
-			connection = DriverManager.getConnection(connectionString, System.getProperties());
+			this.pool = ConnectionPool.getInstance();
+			this.pooledConnection = this.pool.borrow();
+			this.connection = this.pooledConnection.getConnection();
 			isConnectionValid = true;
 		} catch (CJCommunicationsException | CommunicationsException e) {
 			isConnectionValid = false;
 			throw new ConnectionFailedException();
-		} catch (ClassNotFoundException | SQLException e) {
+		} catch (SQLTimeoutException e) {
+			isConnectionValid = false;
+			throw new ConnectionFailedException(e.getMessage());
+		} catch (SQLException e) {
 			e.printStackTrace();
 			isConnectionValid = false;
 		}
 	}
 
+	/**
+	 * Gets information about the state of the connection pool, like the amount of active and idle connections.
+	 *
+	 * @return A snapshot of the connection pool's current state.
+	 */
+	public static PoolStatistics getPoolStatistics() {
+		return ConnectionPool.getInstance().getStatistics();
+	}
+
+	/**
+	 * Closes all idle connections of the connection pool.
+	 * Connections which are currently in use will be closed once they are returned.
+	 * The next connection will create a new pool, which also means that changed connection settings will then take effect.
+	 */
+	public static void shutdownPool() {
+		ConnectionPool.shutdown();
+	}
+
 	/**
 	 * Checks if the connection is valid/successful.
 	 *
@@ -97,7 +184,7 @@ public class DBConnection implements Closeable {
 	 * @throws SQLException if the query is malformed or cannot be executed.
 	 */
 	public ResultSet execute(String query) throws SQLException {
-		Statement statement = this.connection.createStatement();
+		Statement statement = track(this.connection.createStatement());
 		loggingModule.log(query);
 		var set = statement.executeQuery(query);
 		statement.closeOnCompletion();
@@ -113,12 +200,35 @@ public class DBConnection implements Closeable {
 	 * @throws SQLException if the query is malformed or cannot be executed.
 	 */
 	public ResultSet execute(String query, Object... params) throws SQLException {
-		var statement = this.connection.prepareStatement(query);
+		var statement = track(this.connection.prepareStatement(query));
 		for (int i = 0; i < params.length; i++) {
 			statement.setObject(i + 1, params[i]);
 		}
 
-		loggingModule.log(query);
+		logQuery(query, params);
+		var set = statement.executeQuery();
+		statement.closeOnCompletion();
+		return set;
+	}
+
+	/**
+	 * Executes a DQL statement on the database whose result is read in portions of {@link #STREAM_FETCH_SIZE} rows while it is iterated,
+	 * instead of being loaded entirely when the statement is executed.
+	 * The connection must stay open until the {@link ResultSet} has been read.
+	 *
+	 * @param query  The query to be executed.
+	 * @param params The Java parameters to be inserted into the query.
+	 * @return The {@link ResultSet} containing the result from the DQL statement.
+	 * @throws SQLException if the query is malformed or cannot be executed.
+	 */
+	public ResultSet executeStreaming(String query, Object... params) throws SQLException {
+		var statement = track(this.connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY));
+		statement.setFetchSize(Math.max(1, STREAM_FETCH_SIZE));
+		for (int i = 0; i < params.length; i++) {
+			statement.setObject(i + 1, params[i]);
+		}
+
+		logQuery(query, params);
 		var set = statement.executeQuery();
 		statement.closeOnCompletion();
 		return set;
@@ -132,7 +242,7 @@ public class DBConnection implements Closeable {
 	 * @throws SQLException if the query is malformed or cannot be executed.
 	 */
 	public long update(String query) throws SQLException {
-		var statement = this.connection.createStatement();
+		var statement = track(this.connection.createStatement());
 		loggingModule.log(query);
 		statement.executeUpdate(query, Statement.RETURN_GENERATED_KEYS);
 		return updateHelper(statement);
@@ -147,16 +257,97 @@ public class DBConnection implements Closeable {
 	 * @throws SQLException if the query is malformed or cannot be executed.
 	 */
 	public long update(String query, Object... params) throws SQLException {
-		var statement = this.connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+		var statement = track(this.connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS));
 		for (int i = 0; i < params.length; i++) {
 			statement.setObject(i + 1, params[i]);
 		}
 
-		loggingModule.log(query);
+		logQuery(query, params);
 		statement.executeUpdate();
 		return updateHelper(statement);
 	}
 
+	/**
+	 * Executes a DML statement once for every set of parameters in a single batch.
+	 * Inserts of a batch are combined into multi-row statements by the driver.
+	 *
+	 * @param query         The query to be executed.
+	 * @param parameterSets The Java parameters for every execution of the query.
+	 * @return The generated IDs in the order of the parameter sets. If no ID was generated for an execution, its value is -1.
+	 * @throws SQLException if the query is malformed or cannot be executed.
+	 */
+	public long[] updateBatch(String query, List<Object[]> parameterSets) throws SQLException {
+		try (var statement = this.connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+			addBatch(statement, query, parameterSets);
+			statement.executeBatch();
+
+			var ids = new long[parameterSets.size()];
+			Arrays.fill(ids, -1);
+			try (var keys = statement.getGeneratedKeys()) {
+				for (int i = 0; i < ids.length && keys.next(); i++) {
+					ids[i] = keys.getLong(1);
+				}
+			}
+
+			return ids;
+		}
+	}
+
+	/**
+	 * Executes a DML statement once for every set of parameters in a single batch, without retrieving generated IDs.
+	 *
+	 * @param query         The query to be executed.
+	 * @param parameterSets The Java parameters for every execution of the query.
+	 * @return The amount of affected rows for every execution of the query.
+	 * @throws SQLException if the query is malformed or cannot be executed.
+	 */
+	public int[] executeBatch(String query, List<Object[]> parameterSets) throws SQLException {
+		try (var statement = this.connection.prepareStatement(query)) {
+			addBatch(statement, query, parameterSets);
+			return statement.executeBatch();
+		}
+	}
+
+	private void addBatch(PreparedStatement statement, String query, List<Object[]> parameterSets) throws SQLException {
+		for (var params : parameterSets) {
+			for (int i = 0; i < params.length; i++) {
+				statement.setObject(i + 1, params[i]);
+			}
+
+			statement.addBatch();
+		}
+
+		loggingModule.logf("%s [batch of %d]", query, parameterSets.size());
+	}
+
+	/**
+	 * Executes an action in a transaction. If the action fails, all of its changes are rolled back.
+	 *
+	 * @param action The action which executes statements on this connection.
+	 * @throws SQLException if the action fails or the transaction cannot be committed.
+	 */
+	public void runInTransaction(ThrowableRunnable<SQLException> action) throws SQLException {
+		this.connection.setAutoCommit(false);
+		try {
+			action.doAction();
+			this.connection.commit();
+		} catch (SQLException | RuntimeException e) {
+			this.connection.rollback();
+			throw e;
+		} finally {
+			this.connection.setAutoCommit(true);
+		}
+	}
+
+	private void logQuery(String query, Object[] params) {
+		if (params.length == 0) {
+			loggingModule.log(query);
+			return;
+		}
+
+		loggingModule.logf("%s %s", query, Arrays.toString(params));
+	}
+
 	private long updateHelper(Statement statement) throws SQLException {
 		statement.closeOnCompletion();
 		var set = statement.getGeneratedKeys();
@@ -167,6 +358,19 @@ public class DBConnection implements Closeable {
 		return -1;
 	}
 
+	/**
+	 * Remembers a statement so it can be closed when this connection is returned to the pool,
+	 * since returning the connection does not close the physical connection and with it its statements.
+	 *
+	 * @param statement The statement created on this connection.
+	 * @param <S>       The type of the statement.
+	 * @return The passed statement.
+	 */
+	private <S extends Statement> S track(S statement) {
+		this.statements.add(statement);
+		return statement;
+	}
+
 	/**
 	 * Determines if a connection to the database still exists or not.
 	 *
@@ -174,6 +378,10 @@ public class DBConnection implements Closeable {
 	 * This method will return {@code false} if an exception occurs.
 	 */
 	public boolean isOpen() {
+		if (this.pooledConnection == null) {
+			return false;
+		}
+
 		try {
 			return !this.connection.isClosed();
 		} catch (SQLException e) {
@@ -183,19 +391,26 @@ public class DBConnection implements Closeable {
 	}
 
 	/**
-	 * Closes the connection to the database.
+	 * Closes all statements created with this connection and returns the connection to the pool.
 	 */
 	@Override
 	public void close() {
-		try {
-			if (this.connection != null) {
-				this.connection.close();
+		if (this.pooledConnection == null) {
+			return;
+		}
+
+		for (var statement : this.statements) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				System.err.println("Could not close database statement");
+				e.printStackTrace();
 			}
-		} catch (SQLException e) {
-			System.err.println("Could not close database connection");
-			e.printStackTrace();
-		} finally {
-			this.isConnectionValid = false;
 		}
+
+		this.statements.clear();
+		this.pool.release(this.pooledConnection);
+		this.pooledConnection = null;
+		this.isConnectionValid = false;
 	}
 }
@@ -0,0 +1,358 @@
+package com.github.collinalpert.java2db.database;
+
+import com.github.collinalpert.java2db.annotations.ForeignKeyEntity;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+import com.github.collinalpert.java2db.modules.FieldModule;
+import com.github.collinalpert.java2db.modules.TableModule;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Describes how an entity class maps to its table: the table name, the columns, the foreign keys and how they are configured.
+ * The metadata of a class is determined once using reflection and is cached afterwards, so it can be used for every query
+ * and every mapped row without inspecting the class again. Instances are immutable and can be shared between threads.
+ *
+ * @author Collin Alpert
+ */
+public class EntityMetadata {
+
+	private static final FieldModule fieldModule;
+	private static final TableModule tableModule;
+
+	/**
+	 * Accesses the snapshot of column values which every entity carries for change tracking.
+	 */
+	private static final FieldAccessor snapshotAccessor;
+
+	private static final ClassValue<EntityMetadata> registry = new ClassValue<>() {
+		@Override
+		@SuppressWarnings("unchecked")
+		protected EntityMetadata computeValue(Class<?> type) {
+			if (!BaseEntity.class.isAssignableFrom(type)) {
+				throw new IllegalArgumentException(String.format("Type %s does not extend BaseEntity.", type.getSimpleName()));
+			}
+
+			return new EntityMetadata((Class<? extends BaseEntity>) type);
+		}
+	};
+
+	static {
+		fieldModule = new FieldModule();
+		tableModule = new TableModule();
+		try {
+			snapshotAccessor = new FieldAccessor(BaseEntity.class.getDeclaredField("snapshot"));
+		} catch (NoSuchFieldException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final Class<? extends BaseEntity> type;
+	private final String tableName;
+
+	/**
+	 * The parameterless constructor of the entity with the type {@code ()Object}, or {@code null} if there is none.
+	 */
+	private final MethodHandle constructor;
+
+	/**
+	 * All columns of the entity, including the id column, in the order in which they are declared, starting with the entity class itself.
+	 */
+	private final List<ColumnMetadata> columns;
+
+	/**
+	 * All columns of the entity except the id column.
+	 */
+	private final List<ColumnMetadata> columnsWithoutId;
+
+	/**
+	 * All fields marked with the {@link ForeignKeyEntity} annotation.
+	 */
+	private final List<ForeignKeyMetadata> foreignKeys;
+
+	private EntityMetadata(Class<? extends BaseEntity> type) {
+		this.type = type;
+		this.tableName = tableModule.getTableName(type);
+		this.constructor = findConstructor(type);
+
+		var columns = new ArrayList<ColumnMetadata>();
+		var foreignKeyFields = new ArrayList<Field>();
+		for (var field : fieldModule.getEntityFields(type, true)) {
+			if (field.getAnnotation(ForeignKeyEntity.class) != null) {
+				foreignKeyFields.add(field);
+				continue;
+			}
+
+			columns.add(new ColumnMetadata(field, tableModule.getColumnName(field)));
+		}
+
+		var foreignKeys = new ArrayList<ForeignKeyMetadata>(foreignKeyFields.size());
+		for (var field : foreignKeyFields) {
+			var referencedTableName = field.getType().isEnum() ? null : tableModule.getTableName(field.getType());
+			foreignKeys.add(new ForeignKeyMetadata(field, findForeignKeyColumn(field, columns), referencedTableName));
+		}
+
+		var columnsWithoutId = new ArrayList<ColumnMetadata>(columns.size());
+		for (var column : columns) {
+			if (!column.isId()) {
+				columnsWithoutId.add(column);
+			}
+		}
+
+		this.columns = Collections.unmodifiableList(columns);
+		this.columnsWithoutId = Collections.unmodifiableList(columnsWithoutId);
+		this.foreignKeys = Collections.unmodifiableList(foreignKeys);
+	}
+
+	/**
+	 * Gets the metadata of an entity class. It is created the first time it is requested for a class.
+	 *
+	 * @param type The entity class.
+	 * @return The metadata describing the entity class.
+	 * @throws IllegalArgumentException if the class does not extend {@link BaseEntity} or one of its foreign keys is configured incorrectly.
+	 */
+	public static EntityMetadata of(Class<?> type) {
+		return registry.get(type);
+	}
+
+	private static MethodHandle findConstructor(Class<?> type) {
+		try {
+			var constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+		} catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Finds the column which holds the foreign key for a field marked with the {@link ForeignKeyEntity} annotation.
+	 * The value of the annotation usually is the name of a field in the same class. If no such field exists,
+	 * the field whose {@link com.github.collinalpert.java2db.annotations.ColumnName} matches the value is used.
+	 *
+	 * @param field   The field marked with the {@link ForeignKeyEntity} annotation.
+	 * @param columns The columns of the entity.
+	 * @return The column holding the foreign key, or {@code null} if it cannot be found.
+	 */
+	private static ColumnMetadata findForeignKeyColumn(Field field, List<ColumnMetadata> columns) {
+		var foreignKeyName = field.getAnnotation(ForeignKeyEntity.class).value();
+		ColumnMetadata columnNameMatch = null;
+		for (var column : columns) {
+			if (column.getField().getDeclaringClass() != field.getDeclaringClass()) {
+				continue;
+			}
+
+			if (column.getFieldName().equals(foreignKeyName)) {
+				return column;
+			}
+
+			if (columnNameMatch == null && column.getColumnName().equals(foreignKeyName)) {
+				columnNameMatch = column;
+			}
+		}
+
+		return columnNameMatch;
+	}
+
+	/**
+	 * Creates an instance of the entity using its parameterless constructor.
+	 * This is the cached equivalent to {@link com.github.collinalpert.java2db.utilities.IoC#createInstance(Class)}.
+	 *
+	 * @param <E> The type of the entity.
+	 * @return A new instance of the entity.
+	 * @throws IllegalArgumentException if the entity cannot be constructed, for example because it does not have a parameterless constructor.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends BaseEntity> E createInstance() {
+		if (constructor == null) {
+			throw new IllegalArgumentException(String.format("Class %s could not be instantiated.", type.getSimpleName()));
+		}
+
+		try {
+			return (E) (Object) constructor.invokeExact();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalArgumentException(String.format("Class %s could not be instantiated.", type.getSimpleName()), e);
+		}
+	}
+
+	/**
+	 * Creates a copy of an entity, containing the values of its columns and copies of the entities its foreign keys refer to.
+	 * Fields which are not mapped to the database, for example because they are marked with the {@code Ignore} annotation, are not copied.
+	 *
+	 * @param entity The entity to copy.
+	 * @param <E>    The type of the entity.
+	 * @return A copy of the entity which can be changed independently of it.
+	 */
+	public <E extends BaseEntity> E copy(E entity) {
+		E copy = createInstance();
+		for (var column : columns) {
+			column.setValue(copy, column.getValue(entity));
+		}
+
+		for (var foreignKey : foreignKeys) {
+			var value = foreignKey.getValue(entity);
+			if (value instanceof BaseEntity) {
+				value = EntityMetadata.of(value.getClass()).copy((BaseEntity) value);
+			}
+
+			foreignKey.setValue(copy, value);
+		}
+
+		var snapshot = (Object[]) snapshotAccessor.get(entity);
+		snapshotAccessor.set(copy, snapshot == null ? null : snapshot.clone());
+		return copy;
+	}
+
+	/**
+	 * Remembers the current values of an entity's columns, so later changes to them can be detected.
+	 * This is done when an entity is read from or written to the database.
+	 * Columns which were not loaded by the query the entity was read with stay marked as not loaded.
+	 *
+	 * @param entity The entity to take the snapshot of.
+	 */
+	public void takeSnapshot(BaseEntity entity) {
+		var previousSnapshot = (Object[]) snapshotAccessor.get(entity);
+		var values = new Object[columnsWithoutId.size()];
+		for (int i = 0; i < values.length; i++) {
+			if (previousSnapshot != null && previousSnapshot.length == values.length && previousSnapshot[i] instanceof UnloadedValue) {
+				values[i] = previousSnapshot[i];
+				continue;
+			}
+
+			values[i] = copyValue(columnsWithoutId.get(i).getValue(entity));
+		}
+
+		snapshotAccessor.set(entity, values);
+	}
+
+	/**
+	 * Remembers the current values of an entity's columns after it was read from the database, marking the columns which were not selected.
+	 * Changes to columns which were not loaded cannot be written using the entity, since their actual values are unknown.
+	 *
+	 * @param entity          The entity to take the snapshot of.
+	 * @param unloadedColumns The columns which were not selected when the entity was read.
+	 */
+	public void takeSnapshot(BaseEntity entity, List<ColumnMetadata> unloadedColumns) {
+		var values = new Object[columnsWithoutId.size()];
+		for (int i = 0; i < values.length; i++) {
+			var column = columnsWithoutId.get(i);
+			var value = copyValue(column.getValue(entity));
+			values[i] = unloadedColumns.contains(column) ? new UnloadedValue(value) : value;
+		}
+
+		snapshotAccessor.set(entity, values);
+	}
+
+	/**
+	 * Updates the snapshot of a single column of an entity, for example after its value was loaded separately.
+	 * If the entity does not have a snapshot, nothing happens.
+	 *
+	 * @param entity The entity to update the snapshot of.
+	 * @param column The column whose current value is remembered.
+	 */
+	public void takeSnapshot(BaseEntity entity, ColumnMetadata column) {
+		var snapshot = (Object[]) snapshotAccessor.get(entity);
+		var index = columnsWithoutId.indexOf(column);
+		if (snapshot == null || index == -1 || snapshot.length != columnsWithoutId.size()) {
+			return;
+		}
+
+		snapshot[index] = copyValue(column.getValue(entity));
+	}
+
+	/**
+	 * Checks if a column of an entity was loaded from the database. Columns of entities which were not read from the database count as loaded.
+	 *
+	 * @param entity The entity to check.
+	 * @param column The column to check.
+	 * @return {@code False} if the column was left out by the query the entity was read with, {@code true} otherwise.
+	 */
+	public boolean isLoaded(BaseEntity entity, ColumnMetadata column) {
+		var snapshot = (Object[]) snapshotAccessor.get(entity);
+		var index = columnsWithoutId.indexOf(column);
+		return snapshot == null || index == -1 || snapshot.length != columnsWithoutId.size() || !(snapshot[index] instanceof UnloadedValue);
+	}
+
+	/**
+	 * Gets the columns whose values have changed since the last snapshot of an entity was taken.
+	 * If no snapshot exists, because the entity was not read from the database, all columns are considered changed,
+	 * except for {@link com.github.collinalpert.java2db.annotations.Lazy} columns which are {@code null}, since it is not known if they were ever loaded.
+	 *
+	 * @param entity The entity to check.
+	 * @return The changed columns, excluding the id. If the entity has not changed, the list is empty.
+	 */
+	public List<ColumnMetadata> getChangedColumns(BaseEntity entity) {
+		var snapshot = (Object[]) snapshotAccessor.get(entity);
+		if (snapshot == null || snapshot.length != columnsWithoutId.size()) {
+			var changedColumns = new ArrayList<ColumnMetadata>(columnsWithoutId.size());
+			for (var column : columnsWithoutId) {
+				if (!column.isLazy() || column.getValue(entity) != null) {
+					changedColumns.add(column);
+				}
+			}
+
+			return changedColumns;
+		}
+
+		var changedColumns = new ArrayList<ColumnMetadata>();
+		for (int i = 0; i < snapshot.length; i++) {
+			var column = columnsWithoutId.get(i);
+			var snapshotValue = snapshot[i] instanceof UnloadedValue ? ((UnloadedValue) snapshot[i]).value : snapshot[i];
+			if (!Objects.deepEquals(snapshotValue, column.getValue(entity))) {
+				changedColumns.add(column);
+			}
+		}
+
+		return changedColumns;
+	}
+
+	public Class<? extends BaseEntity> getType() {
+		return type;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public List<ColumnMetadata> getColumns() {
+		return columns;
+	}
+
+	public List<ColumnMetadata> getColumnsWithoutId() {
+		return columnsWithoutId;
+	}
+
+	public List<ForeignKeyMetadata> getForeignKeys() {
+		return foreignKeys;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s), Columns: %s, Foreign keys: %s", type.getSimpleName(), tableName, columns, foreignKeys);
+	}
+
+	private static Object copyValue(Object value) {
+		return value instanceof byte[] ? ((byte[]) value).clone() : value;
+	}
+
+	/**
+	 * Marks the value of a column in a snapshot whose actual value was not loaded from the database.
+	 * It holds the value the field had after the entity was read, so changes to it can still be detected.
+	 */
+	private static class UnloadedValue {
+
+		private final Object value;
+
+		private UnloadedValue(Object value) {
+			this.value = value;
+		}
+	}
+}
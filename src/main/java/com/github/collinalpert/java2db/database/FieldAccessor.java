@@ -0,0 +1,251 @@
+package com.github.collinalpert.java2db.database;
+
+import com.github.collinalpert.java2db.exceptions.IllegalEntityFieldAccessException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes a field of an entity using method handles, which are created once per field instead of
+ * going through the reflective {@link Field#get(Object)} and {@link Field#set(Object, Object)} calls every time.
+ * For fields of a primitive type, there are specialised methods which do not box the value.
+ *
+ * @author Collin Alpert
+ */
+public class FieldAccessor {
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Field field;
+	private final Class<?> type;
+
+	/**
+	 * The getter of the field with the type {@code (Object)Object}.
+	 */
+	private final MethodHandle getter;
+
+	/**
+	 * The setter of the field with the type {@code (Object, Object)void}.
+	 */
+	private final MethodHandle setter;
+
+	/**
+	 * The getter of the field with the type {@code (Object)type}.
+	 */
+	private final MethodHandle typedGetter;
+
+	/**
+	 * The setter of the field with the type {@code (Object, type)void}.
+	 */
+	private final MethodHandle typedSetter;
+
+	FieldAccessor(Field field) {
+		this.field = field;
+		this.type = field.getType();
+		try {
+			field.setAccessible(true);
+			var lookup = MethodHandles.lookup();
+			var getter = lookup.unreflectGetter(field);
+			var setter = lookup.unreflectSetter(field);
+			this.typedGetter = getter.asType(MethodType.methodType(this.type, Object.class));
+			this.typedSetter = setter.asType(MethodType.methodType(void.class, Object.class, this.type));
+			this.getter = getter.asType(GETTER_TYPE);
+			this.setter = setter.asType(SETTER_TYPE);
+		} catch (IllegalAccessException e) {
+			throw new IllegalEntityFieldAccessException(field.getName(), field.getDeclaringClass().getSimpleName(), e.getMessage());
+		}
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the value of the field from an entity. Primitive values are boxed.
+	 *
+	 * @param entity The entity to get the value from.
+	 * @return The value of the field.
+	 */
+	public Object get(Object entity) {
+		try {
+			return (Object) getter.invokeExact(entity);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	/**
+	 * Sets the value of the field in an entity. Like with {@link Field#set(Object, Object)}, numbers are converted
+	 * if the field has a primitive type which differs from the type of the value, e.g. an {@link Integer} for a {@code long} field.
+	 *
+	 * @param entity The entity to set the value in.
+	 * @param value  The value to set.
+	 */
+	public void set(Object entity, Object value) {
+		if (this.type.isPrimitive() && value instanceof Number) {
+			setNumber(entity, (Number) value);
+			return;
+		}
+
+		try {
+			setter.invokeExact(entity, value);
+		} catch (ClassCastException | NullPointerException e) {
+			throw new IllegalArgumentException(String.format("Cannot set field '%s' of type %s to a value of type %s.", field.getName(), this.type.getSimpleName(), value == null ? "null" : value.getClass().getSimpleName()), e);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public long getLong(Object entity) {
+		try {
+			return (long) typedGetter.invokeExact(entity);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public void setLong(Object entity, long value) {
+		try {
+			typedSetter.invokeExact(entity, value);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public int getInt(Object entity) {
+		try {
+			return (int) typedGetter.invokeExact(entity);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public void setInt(Object entity, int value) {
+		try {
+			typedSetter.invokeExact(entity, value);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public short getShort(Object entity) {
+		try {
+			return (short) typedGetter.invokeExact(entity);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public void setShort(Object entity, short value) {
+		try {
+			typedSetter.invokeExact(entity, value);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public byte getByte(Object entity) {
+		try {
+			return (byte) typedGetter.invokeExact(entity);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public void setByte(Object entity, byte value) {
+		try {
+			typedSetter.invokeExact(entity, value);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public double getDouble(Object entity) {
+		try {
+			return (double) typedGetter.invokeExact(entity);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public void setDouble(Object entity, double value) {
+		try {
+			typedSetter.invokeExact(entity, value);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public float getFloat(Object entity) {
+		try {
+			return (float) typedGetter.invokeExact(entity);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public void setFloat(Object entity, float value) {
+		try {
+			typedSetter.invokeExact(entity, value);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public boolean getBoolean(Object entity) {
+		try {
+			return (boolean) typedGetter.invokeExact(entity);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	public void setBoolean(Object entity, boolean value) {
+		try {
+			typedSetter.invokeExact(entity, value);
+		} catch (Throwable e) {
+			throw accessFailed(entity, e);
+		}
+	}
+
+	/**
+	 * Sets a number in a field of a primitive type, converting it to the type of the field.
+	 *
+	 * @param entity The entity to set the value in.
+	 * @param value  The number to set.
+	 */
+	private void setNumber(Object entity, Number value) {
+		if (this.type == long.class) {
+			setLong(entity, value.longValue());
+		} else if (this.type == int.class) {
+			setInt(entity, value.intValue());
+		} else if (this.type == double.class) {
+			setDouble(entity, value.doubleValue());
+		} else if (this.type == float.class) {
+			setFloat(entity, value.floatValue());
+		} else if (this.type == short.class) {
+			setShort(entity, value.shortValue());
+		} else if (this.type == byte.class) {
+			setByte(entity, value.byteValue());
+		} else if (this.type == boolean.class) {
+			setBoolean(entity, value.longValue() != 0);
+		} else {
+			throw new IllegalArgumentException(String.format("Cannot set field '%s' of type %s to a number.", field.getName(), this.type.getSimpleName()));
+		}
+	}
+
+	private RuntimeException accessFailed(Object entity, Throwable e) {
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		}
+
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+
+		return new IllegalEntityFieldAccessException(field.getName(), entity == null ? field.getDeclaringClass().getSimpleName() : entity.getClass().getSimpleName(), e.getMessage());
+	}
+}
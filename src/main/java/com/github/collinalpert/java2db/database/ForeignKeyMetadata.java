@@ -0,0 +1,166 @@
+package com.github.collinalpert.java2db.database;
+
+import com.github.collinalpert.java2db.annotations.ForeignKeyEntity;
+import com.github.collinalpert.java2db.contracts.IdentifiableEnum;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+import com.github.collinalpert.java2db.queries.FetchStrategy;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Describes a field of an entity which is marked with the {@link ForeignKeyEntity} annotation.
+ * Such a field either holds the entity a foreign key refers to or an {@link IdentifiableEnum} representing it.
+ * Instances are created once per entity class by the {@link EntityMetadata} and are immutable.
+ *
+ * @author Collin Alpert
+ */
+public class ForeignKeyMetadata {
+
+	/**
+	 * The field holding the referenced entity or enum.
+	 */
+	private final Field field;
+
+	/**
+	 * Reads and writes the referenced entity or enum of entities.
+	 */
+	private final FieldAccessor accessor;
+
+	/**
+	 * The foreign key as specified in the {@link ForeignKeyEntity} annotation.
+	 */
+	private final String foreignKeyName;
+
+	/**
+	 * The way the referenced entity is loaded per default, as specified in the {@link ForeignKeyEntity} annotation.
+	 */
+	private final FetchStrategy fetchStrategy;
+
+	/**
+	 * The column holding the foreign key, or {@code null} if the entity does not have a field for it.
+	 */
+	private final ColumnMetadata foreignKeyColumn;
+
+	/**
+	 * The name of the column holding the foreign key on the database.
+	 */
+	private final String foreignKeyColumnName;
+
+	/**
+	 * The table the foreign key refers to. This is {@code null} for enums.
+	 */
+	private final String referencedTableName;
+
+	/**
+	 * The enum constants by their id, if this foreign key is represented by an enum. Otherwise this map is empty.
+	 */
+	private final Map<Long, Object> enumConstants;
+
+	ForeignKeyMetadata(Field field, ColumnMetadata foreignKeyColumn, String referencedTableName) {
+		this.field = field;
+		this.accessor = new FieldAccessor(field);
+		var annotation = field.getAnnotation(ForeignKeyEntity.class);
+		this.foreignKeyName = annotation.value();
+		this.fetchStrategy = annotation.fetch();
+		this.foreignKeyColumn = foreignKeyColumn;
+		this.foreignKeyColumnName = foreignKeyColumn == null ? "" : foreignKeyColumn.getColumnName();
+		this.referencedTableName = referencedTableName;
+
+		if (field.getType().isEnum()) {
+			if (!IdentifiableEnum.class.isAssignableFrom(field.getType())) {
+				throw new IllegalArgumentException(String.format("The enum %s used in %s was annotated with a ForeignKeyEntity attribute but does not extend IdentifiableEnum.", field.getType().getSimpleName(), field.getDeclaringClass().getSimpleName()));
+			}
+
+			var constants = new HashMap<Long, Object>();
+			for (var constant : field.getType().getEnumConstants()) {
+				constants.putIfAbsent(((IdentifiableEnum) constant).getId(), constant);
+			}
+
+			this.enumConstants = Collections.unmodifiableMap(constants);
+		} else {
+			if (!BaseEntity.class.isAssignableFrom(field.getType())) {
+				throw new IllegalArgumentException(String.format("Type %s, which is annotated as a foreign key, does not extend BaseEntity.", field.getType().getSimpleName()));
+			}
+
+			this.enumConstants = Collections.emptyMap();
+		}
+	}
+
+	public Field getField() {
+		return field;
+	}
+
+	public String getFieldName() {
+		return field.getName();
+	}
+
+	public String getForeignKeyName() {
+		return foreignKeyName;
+	}
+
+	public FetchStrategy getFetchStrategy() {
+		return fetchStrategy;
+	}
+
+	public ColumnMetadata getForeignKeyColumn() {
+		return foreignKeyColumn;
+	}
+
+	public String getForeignKeyColumnName() {
+		return foreignKeyColumnName;
+	}
+
+	public String getReferencedTableName() {
+		return referencedTableName;
+	}
+
+	public boolean isEnum() {
+		return field.getType().isEnum();
+	}
+
+	/**
+	 * @return The type of the referenced entity. This method must not be called for enums.
+	 */
+	@SuppressWarnings("unchecked")
+	public Class<? extends BaseEntity> getEntityType() {
+		return (Class<? extends BaseEntity>) field.getType();
+	}
+
+	/**
+	 * Gets the enum constant representing a foreign key value.
+	 *
+	 * @param id The value of the foreign key.
+	 * @return The enum constant with this id, or {@code null} if there is none or this foreign key is not represented by an enum.
+	 */
+	public Object getEnumConstant(long id) {
+		return enumConstants.get(id);
+	}
+
+	/**
+	 * Gets the referenced entity or enum constant of an entity.
+	 *
+	 * @param entity The entity to get the value from.
+	 * @return The referenced entity or enum constant.
+	 */
+	public Object getValue(Object entity) {
+		return accessor.get(entity);
+	}
+
+	/**
+	 * Sets the referenced entity or enum constant in an entity.
+	 *
+	 * @param entity The entity to set the value in.
+	 * @param value  The referenced entity or enum constant.
+	 */
+	public void setValue(Object entity, Object value) {
+		accessor.set(entity, value);
+	}
+
+	@Override
+	public String toString() {
+		return field.getName() + " -> " + foreignKeyName;
+	}
+}
@@ -0,0 +1,104 @@
+package com.github.collinalpert.java2db.database;
+
+/**
+ * A snapshot of the state of the connection pool which backs the {@link DBConnection}.
+ * The values are captured at the time of creation and will not change afterwards.
+ *
+ * @author Collin Alpert
+ * @see DBConnection#getPoolStatistics()
+ */
+public class PoolStatistics {
+
+	/**
+	 * The maximum amount of physical connections the pool is allowed to hold.
+	 */
+	private final int maximumPoolSize;
+
+	/**
+	 * The amount of connections which are currently borrowed.
+	 */
+	private final int activeConnections;
+
+	/**
+	 * The amount of open connections which are currently not in use.
+	 */
+	private final int idleConnections;
+
+	/**
+	 * The amount of threads currently waiting for a connection to become available.
+	 */
+	private final int pendingThreads;
+
+	/**
+	 * The amount of physical connections which have been opened since the pool was created.
+	 */
+	private final long createdConnections;
+
+	/**
+	 * The amount of physical connections which have been closed since the pool was created.
+	 */
+	private final long closedConnections;
+
+	/**
+	 * The amount of times a connection has been handed out by the pool.
+	 */
+	private final long borrowedConnections;
+
+	/**
+	 * The amount of times a thread gave up waiting for a connection.
+	 */
+	private final long timeouts;
+
+	public PoolStatistics(int maximumPoolSize, int activeConnections, int idleConnections, int pendingThreads, long createdConnections, long closedConnections, long borrowedConnections, long timeouts) {
+		this.maximumPoolSize = maximumPoolSize;
+		this.activeConnections = activeConnections;
+		this.idleConnections = idleConnections;
+		this.pendingThreads = pendingThreads;
+		this.createdConnections = createdConnections;
+		this.closedConnections = closedConnections;
+		this.borrowedConnections = borrowedConnections;
+		this.timeouts = timeouts;
+	}
+
+	public int getMaximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	public int getActiveConnections() {
+		return activeConnections;
+	}
+
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	public int getTotalConnections() {
+		return activeConnections + idleConnections;
+	}
+
+	public int getPendingThreads() {
+		return pendingThreads;
+	}
+
+	public long getCreatedConnections() {
+		return createdConnections;
+	}
+
+	public long getClosedConnections() {
+		return closedConnections;
+	}
+
+	public long getBorrowedConnections() {
+		return borrowedConnections;
+	}
+
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Active: %d, Idle: %d, Maximum: %d, Pending: %d, Created: %d, Closed: %d, Borrowed: %d, Timeouts: %d",
+				activeConnections, idleConnections, maximumPoolSize, pendingThreads, createdConnections, closedConnections, borrowedConnections, timeouts);
+	}
+}
@@ -1,10 +1,5 @@
 package com.github.collinalpert.java2db.database;
 
-import com.github.collinalpert.java2db.annotations.ForeignKeyEntity;
-import com.github.collinalpert.java2db.modules.TableModule;
-
-import java.lang.reflect.Field;
-
 /**
  * Describes a column and its table name so they can be referenced together.
  *
@@ -12,21 +7,20 @@ import java.lang.reflect.Field;
  */
 public class TableColumnReference {
 
-	private static final TableModule tableModule;
-
-	static {
-		tableModule = new TableModule();
-	}
-
 	/**
 	 * The table name of this reference.
 	 */
 	private final String tableName;
 
 	/**
-	 * The column name of this reference.
+	 * The column of this reference. This is {@code null} if this reference describes a foreign key.
+	 */
+	private final ColumnMetadata column;
+
+	/**
+	 * The foreign key of this reference. This is {@code null} if this reference describes a regular column.
 	 */
-	private final Field column;
+	private final ForeignKeyMetadata foreignKey;
 
 	/**
 	 * The alias for this reference, if one exists.
@@ -39,17 +33,30 @@ public class TableColumnReference {
 	 */
 	private final String referenceColumn;
 
-	public TableColumnReference(String tableName, Field column, String alias, String referenceColumn) {
+	public TableColumnReference(String tableName, ColumnMetadata column, String alias, String referenceColumn) {
+		this(tableName, column, null, alias, referenceColumn);
+	}
+
+	public TableColumnReference(String tableName, ForeignKeyMetadata foreignKey, String alias, String referenceColumn) {
+		this(tableName, null, foreignKey, alias, referenceColumn);
+	}
+
+	private TableColumnReference(String tableName, ColumnMetadata column, ForeignKeyMetadata foreignKey, String alias, String referenceColumn) {
 		this.tableName = tableName;
 		this.column = column;
+		this.foreignKey = foreignKey;
 		this.alias = alias;
 		this.referenceColumn = referenceColumn;
 	}
 
-	public Field getColumn() {
+	public ColumnMetadata getColumn() {
 		return column;
 	}
 
+	public ForeignKeyMetadata getForeignKey() {
+		return foreignKey;
+	}
+
 	public String getAlias() {
 		return alias;
 	}
@@ -59,15 +66,15 @@ public class TableColumnReference {
 	}
 
 	public String getSQLNotation() {
-		return String.format("`%s`.`%s`", getIdentifier(), tableModule.getColumnName(column));
+		return String.format("`%s`.`%s`", getIdentifier(), column.getColumnName());
 	}
 
 	public String getAliasNotation() {
-		return getIdentifier() + "_" + tableModule.getColumnName(column);
+		return getIdentifier() + "_" + column.getColumnName();
 	}
 
 	public boolean isForeignKey() {
-		return column.getAnnotation(ForeignKeyEntity.class) != null;
+		return foreignKey != null;
 	}
 
 	public String getIdentifier() {
@@ -76,6 +83,6 @@ public class TableColumnReference {
 
 	@Override
 	public String toString() {
-		return getSQLNotation();
+		return isForeignKey() ? foreignKey.toString() : getSQLNotation();
 	}
 }
@@ -1,5 +1,6 @@
 package com.github.collinalpert.java2db.entities;
 
+import com.github.collinalpert.java2db.annotations.Ignore;
 
 /**
  * Describes an entity that has an id. Every entity must inherit from this class.
@@ -10,6 +11,13 @@ public class BaseEntity {
 
 	private long id;
 
+	/**
+	 * The values of the columns when this entity was last read from or written to the database.
+	 * Java2DB uses them to only update columns which have changed. This is not a column.
+	 */
+	@Ignore
+	private transient Object[] snapshot;
+
 	public long getId() {
 		return id;
 	}
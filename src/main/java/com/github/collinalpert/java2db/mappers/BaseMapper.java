@@ -1,57 +1,39 @@
 package com.github.collinalpert.java2db.mappers;
 
-import com.github.collinalpert.java2db.annotations.ColumnName;
-import com.github.collinalpert.java2db.annotations.ForeignKeyEntity;
-import com.github.collinalpert.java2db.contracts.IdentifiableEnum;
+import com.github.collinalpert.java2db.database.DBConnection;
+import com.github.collinalpert.java2db.database.EntityMetadata;
 import com.github.collinalpert.java2db.entities.BaseEntity;
-import com.github.collinalpert.java2db.modules.AnnotationModule;
 import com.github.collinalpert.java2db.modules.ArrayModule;
-import com.github.collinalpert.java2db.modules.FieldModule;
-import com.github.collinalpert.java2db.modules.TableModule;
-import com.github.collinalpert.java2db.utilities.IoC;
-import com.github.collinalpert.java2db.utilities.UniqueIdentifier;
+import com.github.collinalpert.java2db.utilities.Utilities;
 
-import java.lang.reflect.Field;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Calendar;
 import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
-import static com.github.collinalpert.java2db.utilities.Utilities.tryAction;
-import static com.github.collinalpert.java2db.utilities.Utilities.tryGetValue;
-
 /**
  * Default mapper for converting a {@link ResultSet} to the respective Java entity.
+ * Within one mapping call, foreign key entities with the same id are only created once and are shared by all rows referencing them.
  *
  * @author Collin Alpert
  */
 public class BaseMapper<E extends BaseEntity> implements Mappable<E> {
 
-	private static final AnnotationModule annotationModule;
-	private static final TableModule tableModule;
-
-	static {
-		annotationModule = new AnnotationModule();
-		tableModule = new TableModule();
-	}
-
 	private Class<E> clazz;
+	private EntityMetadata metadata;
 
 	public BaseMapper(Class<E> clazz) {
 		this.clazz = clazz;
+		this.metadata = EntityMetadata.of(clazz);
 	}
 
 	/**
 	 * Maps a {@link ResultSet} with a single row to a Java entity.
+	 * The columns are looked up by their label once, so this should only be used for {@code ResultSet}s which were not created by an {@link com.github.collinalpert.java2db.queries.EntityQuery}.
 	 *
 	 * @param set The {@link ResultSet} to map.
 	 * @return An Optional which contains the Java entity if the query was successful.
@@ -59,15 +41,26 @@ public class BaseMapper<E extends BaseEntity> implements Mappable<E> {
 	 */
 	@Override
 	public Optional<E> map(ResultSet set) throws SQLException {
-		E entity = IoC.createInstance(this.clazz);
+		return map(set, null);
+	}
+
+	/**
+	 * Maps a {@link ResultSet} with a single row to a Java entity.
+	 *
+	 * @param set  The {@link ResultSet} to map.
+	 * @param plan The plan describing at which index every column is found. If it is {@code null}, the columns are looked up by their label.
+	 * @return An Optional which contains the Java entity if the query was successful.
+	 * @throws SQLException if the {@link ResultSet#next()} call does not work as expected or if the entity fields cannot be set.
+	 */
+	@Override
+	public Optional<E> map(ResultSet set, MappingPlan plan) throws SQLException {
 		if (!set.next()) {
-			UniqueIdentifier.unset();
 			return Optional.empty();
 		}
 
-		setFields(set, entity);
+		E entity = this.metadata.createInstance();
+		setFields(set, entity, resolvePlan(set, plan).getRoot(), new IdentityMap());
 		set.close();
-		UniqueIdentifier.unset();
 		return Optional.of(entity);
 	}
 
@@ -80,8 +73,21 @@ public class BaseMapper<E extends BaseEntity> implements Mappable<E> {
 	 */
 	@Override
 	public List<E> mapToList(ResultSet set) throws SQLException {
+		return mapToList(set, null);
+	}
+
+	/**
+	 * Maps a {@link ResultSet} with multiple rows to a list of Java entities.
+	 *
+	 * @param set  The {@link ResultSet} to map.
+	 * @param plan The plan describing at which index every column is found. If it is {@code null}, the columns are looked up by their label.
+	 * @return A list of Java entities.
+	 * @throws SQLException if the {@link ResultSet#next()} call does not work as expected or if the entity fields cannot be set.
+	 */
+	@Override
+	public List<E> mapToList(ResultSet set, MappingPlan plan) throws SQLException {
 		var list = new ArrayList<E>();
-		mapInternal(set, list::add);
+		mapInternal(set, plan, list::add);
 		return list;
 	}
 
@@ -94,9 +100,33 @@ public class BaseMapper<E extends BaseEntity> implements Mappable<E> {
 	 */
 	@Override
 	public Stream<E> mapToStream(ResultSet set) throws SQLException {
-		var builder = Stream.<E>builder();
-		mapInternal(set, builder::add);
-		return builder.build();
+		return mapToStream(set, null);
+	}
+
+	/**
+	 * Maps a {@link ResultSet} with multiple rows to a {@code Stream} of Java entities.
+	 * The rows are mapped lazily while the stream is consumed and the {@link ResultSet} is closed when the stream is exhausted or closed.
+	 * Foreign key entities are only shared within portions of {@link DBConnection#STREAM_FETCH_SIZE} rows, so the stream does not hold on to all of them.
+	 *
+	 * @param set  The {@link ResultSet} to map.
+	 * @param plan The plan describing at which index every column is found. If it is {@code null}, the columns are looked up by their label.
+	 * @return A {@code Stream} of Java entities.
+	 * @throws SQLException if the columns of the entity cannot be found in the {@link ResultSet}.
+	 */
+	@Override
+	public Stream<E> mapToStream(ResultSet set, MappingPlan plan) throws SQLException {
+		var mapping = resolvePlan(set, plan).getRoot();
+		var identityMap = new IdentityMap();
+		var rowCounter = new AtomicInteger();
+		return Utilities.stream(set, () -> {
+			if (rowCounter.incrementAndGet() % Math.max(1, DBConnection.STREAM_FETCH_SIZE) == 0) {
+				identityMap.clear();
+			}
+
+			E entity = this.metadata.createInstance();
+			setFields(set, entity, mapping, identityMap);
+			return entity;
+		});
 	}
 
 	/**
@@ -108,8 +138,21 @@ public class BaseMapper<E extends BaseEntity> implements Mappable<E> {
 	 */
 	@Override
 	public E[] mapToArray(ResultSet set) throws SQLException {
+		return mapToArray(set, null);
+	}
+
+	/**
+	 * Maps a {@link ResultSet} with multiple rows to an array of Java entities.
+	 *
+	 * @param set  The {@link ResultSet} to map.
+	 * @param plan The plan describing at which index every column is found. If it is {@code null}, the columns are looked up by their label.
+	 * @return An array of Java entities.
+	 * @throws SQLException if the {@link ResultSet#next()} call does not work as expected or if the entity fields cannot be set.
+	 */
+	@Override
+	public E[] mapToArray(ResultSet set, MappingPlan plan) throws SQLException {
 		var module = new ArrayModule<>(this.clazz, 20);
-		mapInternal(set, module::addElement);
+		mapInternal(set, plan, module::addElement);
 		return module.getArray();
 	}
 
@@ -117,152 +160,102 @@ public class BaseMapper<E extends BaseEntity> implements Mappable<E> {
 	 * Internal handling for executing a certain action for every entity that is generated when iterating through a {@code ResultSet}.
 	 *
 	 * @param set      The {@code ResultSet} which will be iterated through.
+	 * @param plan     The plan describing at which index every column is found, or {@code null}.
 	 * @param handling The action to apply at each iteration of the given {@code ResultSet}.
 	 * @throws SQLException Handling a {@code ResultSet} can possibly result in this exception being thrown.
 	 */
-	private void mapInternal(ResultSet set, Consumer<E> handling) throws SQLException {
-		while (set.next()) {
-			var entity = IoC.createInstance(this.clazz);
-			setFields(set, entity);
-			handling.accept(entity);
+	private void mapInternal(ResultSet set, MappingPlan plan, Consumer<E> handling) throws SQLException {
+		if (set.next()) {
+			var mapping = resolvePlan(set, plan).getRoot();
+			var identityMap = new IdentityMap();
+			do {
+				E entity = this.metadata.createInstance();
+				setFields(set, entity, mapping, identityMap);
+				handling.accept(entity);
+			} while (set.next());
 		}
 
 		set.close();
-		UniqueIdentifier.unset();
 	}
 
 	/**
-	 * Fills the corresponding fields in an entity based on a {@link ResultSet}.
+	 * Uses the given plan or, if there is none, creates one by looking up the column labels in the {@code ResultSet}.
 	 *
-	 * @param set    The {@link ResultSet} to get the data from.
-	 * @param entity The Java entity to fill.
+	 * @param set  The {@code ResultSet} to map.
+	 * @param plan The plan passed by the caller.
+	 * @return The plan to map the {@code ResultSet} with.
+	 * @throws SQLException if a column of the entity is missing in the {@code ResultSet}.
 	 */
-	private <TEntity extends BaseEntity> void setFields(ResultSet set, TEntity entity) throws SQLException {
-		setFields(set, entity, null);
+	private MappingPlan resolvePlan(ResultSet set, MappingPlan plan) throws SQLException {
+		return plan == null ? MappingPlan.forLabels(set, this.clazz) : plan;
 	}
 
 	/**
-	 * Fills the corresponding fields in an entity based on a {@link ResultSet}.
+	 * Fills the corresponding fields in an entity based on the current row of a {@link ResultSet}.
 	 *
-	 * @param set        The {@link ResultSet} to get the data from.
-	 * @param identifier The alias set for a certain entity used as a nested property.
-	 * @param entity     The Java entity to fill.
+	 * @param set         The {@link ResultSet} to get the data from.
+	 * @param entity      The Java entity to fill.
+	 * @param mapping     The indexes of the entity's columns in the {@link ResultSet}.
+	 * @param identityMap The foreign key entities which were already created during this mapping call.
 	 */
-	private <TEntity extends BaseEntity> void setFields(ResultSet set, TEntity entity, String identifier) throws SQLException {
-		var fieldModule = new FieldModule();
-		var fields = fieldModule.getEntityFields(entity.getClass(), true);
-		for (var field : fields) {
-			field.setAccessible(true);
-
-			if (field.getAnnotation(ForeignKeyEntity.class) != null) {
-
-				if (field.getType().isEnum()) {
-					if (!IdentifiableEnum.class.isAssignableFrom(field.getType())) {
-						throw new IllegalArgumentException(String.format("The enum %s used in %s was annotated with a ForeignKeyEntity attribute but does not extend IdentifiableEnum.", field.getType().getSimpleName(), field.getDeclaringClass().getSimpleName()));
-					}
-
-					var foreignKeyName = getForeignKeyName(field);
-					var foundEnum = Arrays.stream(field.getType().getEnumConstants())
-							.map(x -> (IdentifiableEnum) x)
-							.filter(x -> Long.valueOf(tryGetValue(() -> getAccessibleField(field.getDeclaringClass(), foreignKeyName).get(entity)).toString()) == x.getId())
-							.findFirst();
-
-					foundEnum.ifPresent(identifiableEnum -> tryAction(() -> field.set(entity, field.getType().cast(identifiableEnum))));
+	private void setFields(ResultSet set, BaseEntity entity, MappingPlan.EntityMapping mapping, IdentityMap identityMap) throws SQLException {
+		for (var column : mapping.getColumns()) {
+			column.read(set, entity);
+		}
 
+		// Foreign keys are set after the columns, since enums are determined by the value of their foreign key column.
+		for (var foreignKeyMapping : mapping.getForeignKeys()) {
+			var foreignKey = foreignKeyMapping.getForeignKey();
+			if (foreignKey.isEnum()) {
+				var foreignKeyValue = foreignKey.getForeignKeyColumn() == null ? null : foreignKey.getForeignKeyColumn().getValue(entity);
+				if (foreignKeyValue == null) {
 					continue;
 				}
 
-				if (!BaseEntity.class.isAssignableFrom(field.getType())) {
-					throw new IllegalArgumentException(String.format("Type %s, which is annotated as a foreign key, does not extend BaseEntity.", field.getType().getSimpleName()));
+				var foundEnum = foreignKey.getEnumConstant(Long.parseLong(foreignKeyValue.toString()));
+				if (foundEnum != null) {
+					foreignKey.setValue(entity, foundEnum);
 				}
 
-				// If foreign key is null, the corresponding entity must also be null.
-				if (set.getObject((identifier == null ? tableModule.getTableName(entity.getClass()) : identifier) + "_" + getForeignKeyName(field)) == null) {
-					continue;
-				}
-
-				@SuppressWarnings("unchecked")
-				var foreignKeyObject = IoC.createInstance((Class<? extends BaseEntity>) field.getType());
-				setFields(set, foreignKeyObject, UniqueIdentifier.getIdentifier(field.getName()));
-				tryAction(() -> field.set(entity, foreignKeyObject));
-
 				continue;
 			}
 
-			var columnName = tableModule.getColumnName(field);
-			var columnLabel = (identifier == null ? tableModule.getTableName(entity.getClass()) : identifier) + "_" + columnName;
-
-			Object value = getValue(set, columnLabel, field.getType());
-
-			if (value == null) {
+			// If foreign key is null, the corresponding entity must also be null.
+			if (set.getObject(foreignKeyMapping.getNullCheckIndex()) == null) {
 				continue;
 			}
 
-			tryAction(() -> field.set(entity, value));
+			foreignKey.setValue(entity, getForeignKeyEntity(set, foreignKeyMapping.getEntity(), identityMap));
 		}
-	}
 
-	/**
-	 * Get's a value from a {@code ResultSet} while performing some additional null checks.
-	 *
-	 * @param set         The {@code ResultSet} to retrieve the value from.
-	 * @param columnLabel The name of the column which holds the value.
-	 * @param type        The type of the value to be fetched.
-	 * @return An object containing the retrieved value.
-	 * @throws SQLException In case no value with the given name was found in the {@code ResultSet}.
-	 */
-	private Object getValue(ResultSet set, String columnLabel, Class<?> type) throws SQLException {
-		if (type == LocalDateTime.class) {
-			var value = set.getTimestamp(columnLabel, Calendar.getInstance(Locale.getDefault()));
-			return value == null ? null : value.toLocalDateTime();
-		} else if (type == LocalDate.class) {
-			var value = set.getDate(columnLabel, Calendar.getInstance(Locale.getDefault()));
-			return value == null ? null : value.toLocalDate();
-		} else if (type == LocalTime.class) {
-			var value = set.getTime(columnLabel, Calendar.getInstance(Locale.getDefault()));
-			return value == null ? null : value.toLocalTime();
-		} else {
-			return set.getObject(columnLabel);
-		}
+		mapping.getMetadata().takeSnapshot(entity, mapping.getUnloadedColumns());
 	}
 
 	/**
-	 * Get's the name of a foreign key column in a table from a {@code Field} marked with the {@link ForeignKeyEntity} annotation.
+	 * Gets the foreign key entity of the current row of a {@link ResultSet}. If an entity with the same id was already created
+	 * during this mapping call, it is reused instead of reading its columns again.
 	 *
-	 * @param field The field to get the foreign key information from.
-	 * @return The name of the column which has the foreign key constraint.
+	 * @param set         The {@link ResultSet} to get the data from.
+	 * @param mapping     The indexes of the foreign key entity's columns in the {@link ResultSet}.
+	 * @param identityMap The foreign key entities which were already created during this mapping call.
+	 * @return The foreign key entity.
 	 */
-	private String getForeignKeyName(Field field) {
-		var foreignKeyColumnName = field.getAnnotation(ForeignKeyEntity.class).value();
-
-		try {
-			var foreignKeyField = field.getDeclaringClass().getDeclaredField(foreignKeyColumnName);
-			return tableModule.getColumnName(foreignKeyField);
-		} catch (NoSuchFieldException e) {
-			//Oh boi, you've done it now! This case occurs when a foreign key field gets altered by a ColumnName attribute.
-			for (var declaredField : field.getDeclaringClass().getDeclaredFields()) {
-				var info = annotationModule.getAnnotationInfo(declaredField, ColumnName.class, a -> a.value().equals(foreignKeyColumnName));
-				if (info.hasAnnotation()) {
-					return info.getAnnotation().value();
-				}
-
-			}
+	private BaseEntity getForeignKeyEntity(ResultSet set, MappingPlan.EntityMapping mapping, IdentityMap identityMap) throws SQLException {
+		var idIndex = mapping.indexOfId();
+		if (idIndex == -1) {
+			BaseEntity foreignKeyObject = mapping.getMetadata().createInstance();
+			setFields(set, foreignKeyObject, mapping, identityMap);
+			return foreignKeyObject;
 		}
 
-		return "";
-	}
+		var id = set.getLong(idIndex);
+		var foreignKeyObject = identityMap.get(mapping, id);
+		if (foreignKeyObject == null) {
+			foreignKeyObject = mapping.getMetadata().createInstance();
+			setFields(set, foreignKeyObject, mapping, identityMap);
+			identityMap.put(mapping, id, foreignKeyObject);
+		}
 
-	/**
-	 * Retrieves any field (including private ones) from a class by its name and makes it accessible.
-	 *
-	 * @param clazz The class to get the field from.
-	 * @param name  The name of the field.
-	 * @return The field which has been made accessible.
-	 * @throws NoSuchFieldException If no field with a matching name exists in the given class.
-	 */
-	private Field getAccessibleField(Class<?> clazz, String name) throws NoSuchFieldException {
-		var field = clazz.getDeclaredField(name);
-		field.setAccessible(true);
-		return field;
+		return foreignKeyObject;
 	}
 }
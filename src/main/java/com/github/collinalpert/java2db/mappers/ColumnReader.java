@@ -0,0 +1,194 @@
+package com.github.collinalpert.java2db.mappers;
+
+import com.github.collinalpert.java2db.database.ColumnMetadata;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Reads the value of a column from a {@link ResultSet} by its index and sets it in an entity.
+ * Readers are chosen once per column based on the type of its field, so every value is read with the matching typed getter.
+ * If the value on the database is {@code null}, the field keeps its default value.
+ *
+ * @author Collin Alpert
+ */
+@FunctionalInterface
+public interface ColumnReader {
+
+	/**
+	 * Reads a value from the current row of a {@link ResultSet} and sets it in an entity.
+	 *
+	 * @param set    The {@link ResultSet} positioned at the row to read from.
+	 * @param index  The index of the column, starting at 1.
+	 * @param entity The entity to set the value in.
+	 * @throws SQLException if the value cannot be read.
+	 */
+	void read(ResultSet set, int index, Object entity) throws SQLException;
+
+	/**
+	 * Creates a reader which fits the type of a column's field.
+	 *
+	 * @param column The column to read.
+	 * @return A reader for the column.
+	 */
+	static ColumnReader of(ColumnMetadata column) {
+		var accessor = column.getAccessor();
+		var type = column.getType();
+		if (type == long.class) {
+			return (set, index, entity) -> {
+				var value = set.getLong(index);
+				if (!set.wasNull()) {
+					accessor.setLong(entity, value);
+				}
+			};
+		}
+
+		if (type == int.class) {
+			return (set, index, entity) -> {
+				var value = set.getInt(index);
+				if (!set.wasNull()) {
+					accessor.setInt(entity, value);
+				}
+			};
+		}
+
+		if (type == boolean.class) {
+			return (set, index, entity) -> {
+				var value = set.getBoolean(index);
+				if (!set.wasNull()) {
+					accessor.setBoolean(entity, value);
+				}
+			};
+		}
+
+		if (type == double.class) {
+			return (set, index, entity) -> {
+				var value = set.getDouble(index);
+				if (!set.wasNull()) {
+					accessor.setDouble(entity, value);
+				}
+			};
+		}
+
+		if (type == float.class) {
+			return (set, index, entity) -> {
+				var value = set.getFloat(index);
+				if (!set.wasNull()) {
+					accessor.setFloat(entity, value);
+				}
+			};
+		}
+
+		if (type == short.class) {
+			return (set, index, entity) -> {
+				var value = set.getShort(index);
+				if (!set.wasNull()) {
+					accessor.setShort(entity, value);
+				}
+			};
+		}
+
+		if (type == byte.class) {
+			return (set, index, entity) -> {
+				var value = set.getByte(index);
+				if (!set.wasNull()) {
+					accessor.setByte(entity, value);
+				}
+			};
+		}
+
+		if (type == Long.class) {
+			return (set, index, entity) -> {
+				var value = set.getLong(index);
+				if (!set.wasNull()) {
+					accessor.set(entity, value);
+				}
+			};
+		}
+
+		if (type == Integer.class) {
+			return (set, index, entity) -> {
+				var value = set.getInt(index);
+				if (!set.wasNull()) {
+					accessor.set(entity, value);
+				}
+			};
+		}
+
+		if (type == Boolean.class) {
+			return (set, index, entity) -> {
+				var value = set.getBoolean(index);
+				if (!set.wasNull()) {
+					accessor.set(entity, value);
+				}
+			};
+		}
+
+		if (type == Double.class) {
+			return (set, index, entity) -> {
+				var value = set.getDouble(index);
+				if (!set.wasNull()) {
+					accessor.set(entity, value);
+				}
+			};
+		}
+
+		if (type == String.class) {
+			return (set, index, entity) -> {
+				var value = set.getString(index);
+				if (value != null) {
+					accessor.set(entity, value);
+				}
+			};
+		}
+
+		if (type == BigDecimal.class) {
+			return (set, index, entity) -> {
+				var value = set.getBigDecimal(index);
+				if (value != null) {
+					accessor.set(entity, value);
+				}
+			};
+		}
+
+		if (type == LocalDateTime.class) {
+			return (set, index, entity) -> {
+				var value = set.getTimestamp(index, Calendar.getInstance(Locale.getDefault()));
+				if (value != null) {
+					accessor.set(entity, value.toLocalDateTime());
+				}
+			};
+		}
+
+		if (type == LocalDate.class) {
+			return (set, index, entity) -> {
+				var value = set.getDate(index, Calendar.getInstance(Locale.getDefault()));
+				if (value != null) {
+					accessor.set(entity, value.toLocalDate());
+				}
+			};
+		}
+
+		if (type == LocalTime.class) {
+			return (set, index, entity) -> {
+				var value = set.getTime(index, Calendar.getInstance(Locale.getDefault()));
+				if (value != null) {
+					accessor.set(entity, value.toLocalTime());
+				}
+			};
+		}
+
+		return (set, index, entity) -> {
+			var value = set.getObject(index);
+			if (value != null) {
+				accessor.set(entity, value);
+			}
+		};
+	}
+}
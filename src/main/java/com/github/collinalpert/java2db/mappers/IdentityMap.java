@@ -0,0 +1,55 @@
+package com.github.collinalpert.java2db.mappers;
+
+import com.github.collinalpert.java2db.entities.BaseEntity;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Holds the foreign key entities which were already created while mapping a {@link java.sql.ResultSet}, so every row referencing
+ * the same entity receives the same instance instead of a new one. It is only used for the duration of one mapping call.
+ * <p>
+ * Entities are kept per {@link MappingPlan.EntityMapping} and id. The same entity reached through different foreign key paths
+ * can be filled to a different depth, so instances are only shared between rows which map the entity in the same way.
+ *
+ * @author Collin Alpert
+ */
+class IdentityMap {
+
+	private final Map<MappingPlan.EntityMapping, Map<Long, BaseEntity>> entities;
+
+	IdentityMap() {
+		this.entities = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Gets an entity which was already created for a mapping.
+	 *
+	 * @param mapping The mapping the entity is created with.
+	 * @param id      The id of the entity.
+	 * @return The entity, or {@code null} if it has not been created yet.
+	 */
+	BaseEntity get(MappingPlan.EntityMapping mapping, long id) {
+		var mappedEntities = this.entities.get(mapping);
+		return mappedEntities == null ? null : mappedEntities.get(id);
+	}
+
+	/**
+	 * Adds an entity which was created for a mapping.
+	 *
+	 * @param mapping The mapping the entity was created with.
+	 * @param id      The id of the entity.
+	 * @param entity  The entity.
+	 */
+	void put(MappingPlan.EntityMapping mapping, long id, BaseEntity entity) {
+		this.entities.computeIfAbsent(mapping, x -> new HashMap<>()).put(id, entity);
+	}
+
+	/**
+	 * Removes all entities, so the memory they use can be freed while a long result is still being mapped.
+	 */
+	void clear() {
+		this.entities.clear();
+	}
+}
@@ -33,6 +33,7 @@ public interface Mappable<T extends BaseEntity> {
 
 	/**
 	 * Maps a {@code ResultSet} to a {@code Stream}.
+	 * Implementations may read the {@code ResultSet} lazily. In that case, it must be closed once the stream is exhausted or closed.
 	 *
 	 * @param set The {@code ResultSet} to get the data from.
 	 * @return An {@code Optional} containing the {@code ResultSet}s data.
@@ -48,4 +49,56 @@ public interface Mappable<T extends BaseEntity> {
 	 * @throws SQLException In case the {@code ResultSet} can't be read.
 	 */
 	T[] mapToArray(ResultSet set) throws SQLException;
+
+	/**
+	 * Maps a {@code ResultSet} to an {@code Optional} using a plan which describes the index of every column.
+	 * This is what queries generated by Java2DB call. By default, the plan is ignored and {@link #map(ResultSet)} is used.
+	 *
+	 * @param set  The {@code ResultSet} to get the data from.
+	 * @param plan The plan describing which columns map to which fields.
+	 * @return An {@code Optional} containing the {@code ResultSet}s data.
+	 * @throws SQLException In case the {@code ResultSet} can't be read.
+	 */
+	default Optional<T> map(ResultSet set, MappingPlan plan) throws SQLException {
+		return map(set);
+	}
+
+	/**
+	 * Maps a {@code ResultSet} to a {@code List} using a plan which describes the index of every column.
+	 * By default, the plan is ignored and {@link #mapToList(ResultSet)} is used.
+	 *
+	 * @param set  The {@code ResultSet} to get the data from.
+	 * @param plan The plan describing which columns map to which fields.
+	 * @return A {@code List} containing the {@code ResultSet}s data.
+	 * @throws SQLException In case the {@code ResultSet} can't be read.
+	 */
+	default List<T> mapToList(ResultSet set, MappingPlan plan) throws SQLException {
+		return mapToList(set);
+	}
+
+	/**
+	 * Maps a {@code ResultSet} to a {@code Stream} using a plan which describes the index of every column.
+	 * By default, the plan is ignored and {@link #mapToStream(ResultSet)} is used.
+	 *
+	 * @param set  The {@code ResultSet} to get the data from.
+	 * @param plan The plan describing which columns map to which fields.
+	 * @return A {@code Stream} containing the {@code ResultSet}s data.
+	 * @throws SQLException In case the {@code ResultSet} can't be read.
+	 */
+	default Stream<T> mapToStream(ResultSet set, MappingPlan plan) throws SQLException {
+		return mapToStream(set);
+	}
+
+	/**
+	 * Maps a {@code ResultSet} to an array using a plan which describes the index of every column.
+	 * By default, the plan is ignored and {@link #mapToArray(ResultSet)} is used.
+	 *
+	 * @param set  The {@code ResultSet} to get the data from.
+	 * @param plan The plan describing which columns map to which fields.
+	 * @return An array containing the {@code ResultSet}s data.
+	 * @throws SQLException In case the {@code ResultSet} can't be read.
+	 */
+	default T[] mapToArray(ResultSet set, MappingPlan plan) throws SQLException {
+		return mapToArray(set);
+	}
 }
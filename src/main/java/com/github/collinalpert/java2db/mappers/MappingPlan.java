@@ -0,0 +1,257 @@
+package com.github.collinalpert.java2db.mappers;
+
+import com.github.collinalpert.java2db.database.ColumnMetadata;
+import com.github.collinalpert.java2db.database.EntityMetadata;
+import com.github.collinalpert.java2db.database.ForeignKeyMetadata;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+import com.github.collinalpert.java2db.utilities.UniqueIdentifier;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes how the columns of a {@link ResultSet} are mapped to an entity and its foreign key entities.
+ * Every selected column is assigned a fixed index and a {@link ColumnReader} when the query is built,
+ * so mapping a row does not need to look up columns by their label.
+ * A plan is immutable and can be used for any amount of rows.
+ *
+ * @author Collin Alpert
+ */
+public class MappingPlan {
+
+	private final EntityMapping root;
+
+	public MappingPlan(EntityMapping root) {
+		this.root = root;
+	}
+
+	/**
+	 * Creates a plan for a {@link ResultSet} whose columns are labelled like the ones of the queries generated by Java2DB,
+	 * meaning {@code tableName_columnName} for the columns of the entity itself and {@code alias_columnName} for foreign key entities.
+	 * The aliases are expected to be generated in the same order as Java2DB does, which is depth-first in the order of the foreign key fields.
+	 * The labels are resolved to indexes once, so the plan can then be used for every row of the {@code ResultSet}.
+	 *
+	 * @param set  The {@code ResultSet} to create the plan for.
+	 * @param type The type of the entity to map to.
+	 * @return A plan mapping the {@code ResultSet} to the entity.
+	 * @throws SQLException if a column of the entity is missing in the {@code ResultSet}.
+	 */
+	public static MappingPlan forLabels(ResultSet set, Class<? extends BaseEntity> type) throws SQLException {
+		var metadata = EntityMetadata.of(type);
+		return new MappingPlan(forLabels(set, metadata, metadata.getTableName(), new UniqueIdentifier()));
+	}
+
+	private static EntityMapping forLabels(ResultSet set, EntityMetadata metadata, String identifier, UniqueIdentifier identifiers) throws SQLException {
+		var builder = new EntityMapping.Builder(metadata);
+		for (var column : metadata.getColumns()) {
+			// Enum columns and lazy columns are not selected.
+			if (!column.getType().isEnum() && !column.isLazy()) {
+				builder.addColumn(set.findColumn(identifier + "_" + column.getColumnName()), column);
+			}
+		}
+
+		for (var foreignKey : metadata.getForeignKeys()) {
+			if (foreignKey.isEnum()) {
+				builder.addEnum(foreignKey);
+				continue;
+			}
+
+			var foreignKeyIdentifier = identifiers.generate(foreignKey.getReferencedTableName().substring(0, 1));
+			var nullCheckIndex = set.findColumn(identifier + "_" + foreignKey.getForeignKeyColumnName());
+			builder.addForeignKey(foreignKey, nullCheckIndex, forLabels(set, EntityMetadata.of(foreignKey.getEntityType()), foreignKeyIdentifier, identifiers));
+		}
+
+		return builder.build();
+	}
+
+	public EntityMapping getRoot() {
+		return root;
+	}
+
+	/**
+	 * Maps a column of the {@link ResultSet} to a column of an entity.
+	 */
+	public static class ColumnMapping {
+
+		private final int index;
+		private final ColumnMetadata column;
+		private final ColumnReader reader;
+
+		public ColumnMapping(int index, ColumnMetadata column) {
+			this.index = index;
+			this.column = column;
+			this.reader = ColumnReader.of(column);
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public ColumnMetadata getColumn() {
+			return column;
+		}
+
+		/**
+		 * Reads the value of this column from the current row and sets it in an entity.
+		 *
+		 * @param set    The {@link ResultSet} positioned at the row to read from.
+		 * @param entity The entity to set the value in.
+		 * @throws SQLException if the value cannot be read.
+		 */
+		public void read(ResultSet set, Object entity) throws SQLException {
+			reader.read(set, index, entity);
+		}
+	}
+
+	/**
+	 * Maps a foreign key of an entity to the columns of the {@link ResultSet} holding the referenced entity.
+	 * Foreign keys represented by an enum do not have a nested mapping, since they are determined by the value of their foreign key column.
+	 */
+	public static class ForeignKeyMapping {
+
+		private final ForeignKeyMetadata foreignKey;
+		private final int nullCheckIndex;
+		private final EntityMapping entity;
+
+		public ForeignKeyMapping(ForeignKeyMetadata foreignKey, int nullCheckIndex, EntityMapping entity) {
+			this.foreignKey = foreignKey;
+			this.nullCheckIndex = nullCheckIndex;
+			this.entity = entity;
+		}
+
+		public ForeignKeyMetadata getForeignKey() {
+			return foreignKey;
+		}
+
+		/**
+		 * @return The index of a column which is {@code null} if the referenced entity does not exist.
+		 */
+		public int getNullCheckIndex() {
+			return nullCheckIndex;
+		}
+
+		/**
+		 * @return The mapping of the referenced entity, or {@code null} if the foreign key is represented by an enum.
+		 */
+		public EntityMapping getEntity() {
+			return entity;
+		}
+	}
+
+	/**
+	 * Maps the columns of a {@link ResultSet} to an entity and its foreign keys.
+	 */
+	public static class EntityMapping {
+
+		private final EntityMetadata metadata;
+		private final List<ColumnMapping> columns;
+		private final List<ForeignKeyMapping> foreignKeys;
+
+		/**
+		 * The columns which are deliberately not selected, because the query only selects some of the columns of the entity.
+		 */
+		private final List<ColumnMetadata> unloadedColumns;
+		private final int idIndex;
+
+		private EntityMapping(EntityMetadata metadata, List<ColumnMapping> columns, List<ForeignKeyMapping> foreignKeys, List<ColumnMetadata> unloadedColumns) {
+			this.metadata = metadata;
+			this.columns = Collections.unmodifiableList(columns);
+			this.foreignKeys = Collections.unmodifiableList(foreignKeys);
+			this.unloadedColumns = Collections.unmodifiableList(unloadedColumns);
+
+			var idIndex = -1;
+			for (var mapping : columns) {
+				if (mapping.getColumn().isId()) {
+					idIndex = mapping.getIndex();
+					break;
+				}
+			}
+
+			this.idIndex = idIndex;
+		}
+
+		public EntityMetadata getMetadata() {
+			return metadata;
+		}
+
+		public List<ColumnMapping> getColumns() {
+			return columns;
+		}
+
+		public List<ForeignKeyMapping> getForeignKeys() {
+			return foreignKeys;
+		}
+
+		public List<ColumnMetadata> getUnloadedColumns() {
+			return unloadedColumns;
+		}
+
+		/**
+		 * @return The index of the id column of this entity, or -1 if it is not selected.
+		 */
+		public int indexOfId() {
+			return idIndex;
+		}
+
+		/**
+		 * Collects the mappings of an entity while its columns are being selected.
+		 */
+		public static class Builder {
+
+			private final EntityMetadata metadata;
+			private final List<ColumnMapping> columns;
+			private final List<ForeignKeyMapping> foreignKeys;
+			private final List<ColumnMetadata> unloadedColumns;
+
+			public Builder(EntityMetadata metadata) {
+				this.metadata = metadata;
+				this.columns = new ArrayList<>();
+				this.foreignKeys = new ArrayList<>();
+				this.unloadedColumns = new ArrayList<>();
+			}
+
+			public Builder addColumn(int index, ColumnMetadata column) {
+				this.columns.add(new ColumnMapping(index, column));
+				return this;
+			}
+
+			public Builder addUnloadedColumn(ColumnMetadata column) {
+				this.unloadedColumns.add(column);
+				return this;
+			}
+
+			public Builder addEnum(ForeignKeyMetadata foreignKey) {
+				this.foreignKeys.add(new ForeignKeyMapping(foreignKey, -1, null));
+				return this;
+			}
+
+			public Builder addForeignKey(ForeignKeyMetadata foreignKey, int nullCheckIndex, EntityMapping entity) {
+				this.foreignKeys.add(new ForeignKeyMapping(foreignKey, nullCheckIndex, entity));
+				return this;
+			}
+
+			/**
+			 * Gets the index of a column which was already added to this builder.
+			 *
+			 * @param column The column to look for.
+			 * @return The index of the column, or -1 if it was not added.
+			 */
+			public int indexOf(ColumnMetadata column) {
+				for (var mapping : columns) {
+					if (mapping.getColumn() == column) {
+						return mapping.getIndex();
+					}
+				}
+
+				return -1;
+			}
+
+			public EntityMapping build() {
+				return new EntityMapping(metadata, new ArrayList<>(columns), new ArrayList<>(foreignKeys), new ArrayList<>(unloadedColumns));
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.github.collinalpert.java2db.modules;
+
+/**
+ * A snapshot of the state of a cache. The values are captured at the time of creation and will not change afterwards.
+ *
+ * @author Collin Alpert
+ */
+public class CacheStatistics {
+
+	/**
+	 * The amount of times a requested value was found in the cache, including requests which waited for another thread to load the value.
+	 */
+	private final long hits;
+
+	/**
+	 * The amount of times a requested value was not found in the cache and had to be computed.
+	 */
+	private final long misses;
+
+	/**
+	 * The amount of entries currently held by the cache.
+	 */
+	private final int size;
+
+	/**
+	 * The amount of entries which were removed because the cache exceeded its bounds.
+	 */
+	private final long evictions;
+
+	/**
+	 * The amount of entries which were removed because they expired.
+	 */
+	private final long expirations;
+
+	public CacheStatistics(long hits, long misses, int size) {
+		this(hits, misses, size, 0, 0);
+	}
+
+	public CacheStatistics(long hits, long misses, int size, long evictions, long expirations) {
+		this.hits = hits;
+		this.misses = misses;
+		this.size = size;
+		this.evictions = evictions;
+		this.expirations = expirations;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public long getExpirations() {
+		return expirations;
+	}
+
+	/**
+	 * @return The share of requests which were served from the cache, between 0 and 1.
+	 */
+	public double getHitRatio() {
+		var requests = hits + misses;
+		return requests == 0 ? 0 : hits / (double) requests;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Hits: %d, Misses: %d, Size: %d, Evictions: %d, Expirations: %d", hits, misses, size, evictions, expirations);
+	}
+}
@@ -1,27 +1,123 @@
 package com.github.collinalpert.java2db.modules;
 
+import com.github.collinalpert.java2db.utilities.AsyncExecutor;
+
+import java.lang.ref.WeakReference;
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * A helper module which contains functionality for basic caching.
  * Its main task to cache query results.
+ * <p>
+ * The cache is safe to use from multiple threads. It holds a bounded amount of entries and evicts the least recently used ones
+ * when the bound is exceeded. Expired entries are removed periodically in the background, so they do not take up memory until they are requested again.
+ * When multiple threads request the same missing entry at the same time, the value is only loaded once.
+ * Optionally, an expired value can still be returned for a while, while it is reloaded in the background.
  *
  * @author Collin Alpert
  */
 public class CachingModule<T> {
 
-	private Map<String, Entry> cacheEntries;
+	/**
+	 * The maximum amount of entries of a cache created with the default constructor.
+	 */
+	public static int DEFAULT_MAXIMUM_SIZE;
+
+	/**
+	 * The interval in which expired entries are removed from all caches.
+	 */
+	private static final Duration SWEEP_INTERVAL;
+
+	/**
+	 * All caches which have been created and not been garbage collected yet, so the sweeper can find them.
+	 */
+	private static final Set<WeakReference<CachingModule<?>>> caches;
+
+	private static final ScheduledExecutorService sweeper;
+
+	static {
+		DEFAULT_MAXIMUM_SIZE = 1000;
+		SWEEP_INTERVAL = Duration.ofMinutes(1);
+		caches = ConcurrentHashMap.newKeySet();
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			var thread = new Thread(runnable, "java2db-cache-sweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		sweeper.scheduleWithFixedDelay(CachingModule::sweepAll, SWEEP_INTERVAL.toNanos(), SWEEP_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * The entries of the cache in access order, so the least recently used entry is always the first one.
+	 * All access has to be synchronized on this map.
+	 */
+	private final LinkedHashMap<String, Entry> cacheEntries;
+
+	/**
+	 * The loads which are currently in progress. Threads which request an entry that is being loaded wait for this load instead of starting another one.
+	 */
+	private final Map<String, CompletableFuture<T>> loads;
+
+	private final long maximumWeight;
+	private final ToLongFunction<? super T> weigher;
+	private long totalWeight;
+
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+	private final LongAdder expirations;
 
 	public CachingModule() {
-		cacheEntries = new HashMap<>();
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Creates a cache which holds a maximum amount of entries.
+	 *
+	 * @param maximumSize The maximum amount of entries.
+	 */
+	public CachingModule(int maximumSize) {
+		this(maximumSize, value -> 1);
+	}
+
+	/**
+	 * Creates a cache whose entries are bounded by their combined weight. This is useful when the entries differ a lot in size.
+	 *
+	 * @param maximumWeight The maximum combined weight of all entries.
+	 * @param weigher       Calculates the weight of a value, for example the amount of elements in a list.
+	 */
+	public CachingModule(long maximumWeight, ToLongFunction<? super T> weigher) {
+		if (maximumWeight < 1) {
+			throw new IllegalArgumentException("The maximum weight of a cache must be at least 1.");
+		}
+
+		this.cacheEntries = new LinkedHashMap<>(16, 0.75f, true);
+		this.loads = new ConcurrentHashMap<>();
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+		this.expirations = new LongAdder();
+		caches.add(new WeakReference<>(this));
 	}
 
 	/**
 	 * Gets an entry from the cache, or creates it if it does not exist using the passed {@code valueFactory}.
+	 * If another thread is already creating this entry, this method waits for it instead of calling the {@code valueFactory} again.
 	 *
 	 * @param name         The name of the cache entry.
 	 * @param valueFactory The {@link Supplier} of data, in case the cache does not have an entry or the entry is expired.
@@ -30,14 +126,120 @@ public class CachingModule<T> {
 	 * @return The requested value from the cache, if it exists. Otherwise the value from the {@code valueFactory} will be returned.
 	 */
 	public T getOrAdd(String name, Supplier<T> valueFactory, Duration expiration) {
-		final Entry entry;
-		if (cacheEntries.containsKey(name) && (entry = cacheEntries.get(name)) != null && !entry.isExpired()) {
+		return getOrAdd(name, valueFactory, expiration, Duration.ZERO);
+	}
+
+	/**
+	 * Gets an entry from the cache, or creates it if it does not exist using the passed {@code valueFactory}.
+	 * When the entry has expired, but not for longer than the {@code staleWindow}, the expired value is returned and a new value
+	 * is loaded in the background, so the caller does not have to wait for it.
+	 *
+	 * @param name         The name of the cache entry.
+	 * @param valueFactory The {@link Supplier} of data, in case the cache does not have an entry or the entry is expired.
+	 * @param expiration   The duration the cache is valid.
+	 * @param staleWindow  The duration after the expiration during which the expired value is still returned while it is reloaded.
+	 * @return The requested value from the cache, if it exists. Otherwise the value from the {@code valueFactory} will be returned.
+	 */
+	public T getOrAdd(String name, Supplier<T> valueFactory, Duration expiration, Duration staleWindow) {
+		Entry staleEntry;
+		synchronized (cacheEntries) {
+			staleEntry = cacheEntries.get(name);
+		}
+
+		var now = System.nanoTime();
+		if (staleEntry != null && staleEntry.isExpired(now) && !staleEntry.isDiscardable(now)) {
+			hits.increment();
+			refresh(name, valueFactory, expiration, staleWindow);
+			return staleEntry.getValue();
+		}
+
+		var entry = getEntry(name);
+		if (entry != null) {
+			hits.increment();
 			return entry.getValue();
 		}
 
-		var value = valueFactory.get();
-		cacheEntries.put(name, new Entry(value, LocalDateTime.now().plus(expiration)));
-		return value;
+		var load = new CompletableFuture<T>();
+		var existingLoad = loads.putIfAbsent(name, load);
+		if (existingLoad != null) {
+			hits.increment();
+			return await(existingLoad);
+		}
+
+		try {
+			// Another thread might have finished loading this entry between the lookup and the registration of this load.
+			entry = getEntry(name);
+			if (entry != null) {
+				hits.increment();
+				load.complete(entry.getValue());
+				return entry.getValue();
+			}
+
+			misses.increment();
+			var value = valueFactory.get();
+			put(name, value, expiration, staleWindow, load);
+			load.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			loads.remove(name, load);
+		}
+	}
+
+	/**
+	 * Loads a new value for an entry in the background, unless it is already being loaded.
+	 * The current value is kept until the new one is available. If loading fails, the current value is kept until it can be discarded.
+	 */
+	private void refresh(String name, Supplier<T> valueFactory, Duration expiration, Duration staleWindow) {
+		var load = new CompletableFuture<T>();
+		if (loads.putIfAbsent(name, load) != null) {
+			return;
+		}
+
+		AsyncExecutor.runAsync(() -> {
+			try {
+				misses.increment();
+				var value = valueFactory.get();
+				put(name, value, expiration, staleWindow, load);
+				load.complete(value);
+			} catch (RuntimeException | Error e) {
+				e.printStackTrace();
+				load.completeExceptionally(e);
+			} finally {
+				loads.remove(name, load);
+			}
+		});
+	}
+
+	/**
+	 * Checks if the cache contains a value for a name which has not expired yet.
+	 *
+	 * @param name The name of the cache entry.
+	 * @return {@code True} if a valid entry exists, {@code false} otherwise.
+	 */
+	public boolean contains(String name) {
+		synchronized (cacheEntries) {
+			var entry = cacheEntries.get(name);
+			return entry != null && !entry.isExpired(System.nanoTime());
+		}
+	}
+
+	/**
+	 * @return The amount of entries in the cache, including expired entries which have not been removed yet.
+	 */
+	public int size() {
+		synchronized (cacheEntries) {
+			return cacheEntries.size();
+		}
+	}
+
+	/**
+	 * @return A snapshot of the statistics of this cache.
+	 */
+	public CacheStatistics getStatistics() {
+		return new CacheStatistics(hits.sum(), misses.sum(), size(), evictions.sum(), expirations.sum());
 	}
 
 	/**
@@ -50,34 +252,161 @@ public class CachingModule<T> {
 	/**
 	 * Invalidates, or rather removes, a specific cache entry.
 	 * This will prompt a reload from the database the next time a value with this cache name is requested.
+	 * A value which is being loaded while it is invalidated will not be stored in the cache.
 	 *
 	 * @param name The name of the entry in the cache.
 	 */
 	public void invalidate(String name) {
-		if (name == null) {
-			cacheEntries.clear();
+		synchronized (cacheEntries) {
+			if (name == null) {
+				loads.clear();
+				cacheEntries.clear();
+				totalWeight = 0;
+				return;
+			}
+
+			loads.remove(name);
+			var entry = cacheEntries.remove(name);
+			if (entry != null) {
+				totalWeight -= entry.weight;
+			}
+		}
+	}
+
+	/**
+	 * Removes all expired entries from this cache, except for those which can still be returned while they are reloaded.
+	 */
+	public void sweep() {
+		var now = System.nanoTime();
+		synchronized (cacheEntries) {
+			var iterator = cacheEntries.values().iterator();
+			while (iterator.hasNext()) {
+				var entry = iterator.next();
+				if (entry.isDiscardable(now)) {
+					iterator.remove();
+					totalWeight -= entry.weight;
+					expirations.increment();
+				}
+			}
+		}
+	}
+
+	private Entry getEntry(String name) {
+		synchronized (cacheEntries) {
+			var entry = cacheEntries.get(name);
+			if (entry == null) {
+				return null;
+			}
+
+			if (entry.isExpired(System.nanoTime())) {
+				cacheEntries.remove(name);
+				totalWeight -= entry.weight;
+				expirations.increment();
+				return null;
+			}
+
+			return entry;
+		}
+	}
+
+	/**
+	 * Stores a loaded value and evicts the least recently used entries until the cache is within its bounds again.
+	 *
+	 * @param name        The name of the entry in the cache.
+	 * @param value       The loaded value.
+	 * @param expiration  The duration the value is valid.
+	 * @param staleWindow The duration after the expiration during which the value can still be returned while it is reloaded.
+	 * @param load        The load which created the value. If it is no longer registered, the entry was invalidated while loading and is not stored.
+	 */
+	private void put(String name, T value, Duration expiration, Duration staleWindow, CompletableFuture<T> load) {
+		var weight = weigher.applyAsLong(value);
+		if (weight > maximumWeight) {
 			return;
 		}
 
-		cacheEntries.remove(name);
+		var expirationTime = System.nanoTime() + expiration.toNanos();
+		var discardTime = expirationTime + staleWindow.toNanos();
+		synchronized (cacheEntries) {
+			if (loads.get(name) != load) {
+				return;
+			}
+
+			var previous = cacheEntries.put(name, new Entry(value, expirationTime, discardTime, weight));
+			if (previous != null) {
+				totalWeight -= previous.weight;
+			}
+
+			totalWeight += weight;
+			var iterator = cacheEntries.values().iterator();
+			while (totalWeight > maximumWeight && iterator.hasNext()) {
+				var eldest = iterator.next();
+				iterator.remove();
+				totalWeight -= eldest.weight;
+				evictions.increment();
+			}
+		}
+	}
+
+	private static <T> T await(CompletableFuture<T> load) {
+		try {
+			return load.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	private static void sweepAll() {
+		for (var reference : caches) {
+			var cache = reference.get();
+			if (cache == null) {
+				caches.remove(reference);
+				continue;
+			}
+
+			cache.sweep();
+		}
 	}
 
 	private class Entry {
 
 		private final T value;
-		private final LocalDateTime expirationDate;
 
-		private Entry(T value, LocalDateTime expirationDate) {
+		/**
+		 * The point in time this entry expires at, according to {@link System#nanoTime()}, so changes of the system clock do not affect it.
+		 */
+		private final long expirationTime;
+
+		/**
+		 * The point in time after which this entry cannot be returned while it is being reloaded anymore.
+		 */
+		private final long discardTime;
+		private final long weight;
+
+		private Entry(T value, long expirationTime, long discardTime, long weight) {
 			this.value = value;
-			this.expirationDate = expirationDate;
+			this.expirationTime = expirationTime;
+			this.discardTime = discardTime;
+			this.weight = weight;
 		}
 
 		public T getValue() {
 			return value;
 		}
 
-		private boolean isExpired() {
-			return LocalDateTime.now().isAfter(expirationDate);
+		private boolean isExpired(long now) {
+			return now - expirationTime > 0;
+		}
+
+		private boolean isDiscardable(long now) {
+			return now - discardTime > 0;
 		}
 	}
 }
@@ -2,6 +2,7 @@ package com.github.collinalpert.java2db.modules;
 
 import com.github.collinalpert.java2db.annotations.ForeignKeyEntity;
 import com.github.collinalpert.java2db.annotations.Ignore;
+import com.github.collinalpert.java2db.database.EntityMetadata;
 import com.github.collinalpert.java2db.database.TableColumnReference;
 import com.github.collinalpert.java2db.entities.BaseEntity;
 import com.github.collinalpert.java2db.utilities.UniqueIdentifier;
@@ -14,17 +15,13 @@ import java.util.stream.Collectors;
 
 /**
  * A helper module for getting fields from classes.
+ * Note that the {@code getEntityFields} methods inspect the class every time they are called.
+ * Where possible, the cached {@link EntityMetadata} should be used instead.
  *
  * @author Collin Alpert
  */
 public class FieldModule {
 
-	private static final TableModule tableModule;
-
-	static {
-		tableModule = new TableModule();
-	}
-
 	public List<Field> getEntityFields(Class<? extends BaseEntity> instanceClass) {
 		return getEntityFields(instanceClass, null, false);
 	}
@@ -76,19 +73,36 @@ public class FieldModule {
 	 * @return A list of columns including references to their table.
 	 */
 	public List<TableColumnReference> getAllFields(Class<? extends BaseEntity> instanceClass, String alias) {
+		return getAllFields(instanceClass, alias, new UniqueIdentifier());
+	}
+
+	/**
+	 * Gets all the fields and the fields of foreign key objects in this entity.
+	 *
+	 * @param instanceClass The class to get the fields from.
+	 * @param alias         The alias that nested properties will use.
+	 * @param identifiers   Generates the aliases of the foreign key objects.
+	 * @return A list of columns including references to their table.
+	 */
+	private List<TableColumnReference> getAllFields(Class<? extends BaseEntity> instanceClass, String alias, UniqueIdentifier identifiers) {
+		var metadata = EntityMetadata.of(instanceClass);
 		var fields = new LinkedList<TableColumnReference>();
-		for (var field : getEntityFields(instanceClass, true)) {
-			if (field.getType().isEnum()) {
+		for (var column : metadata.getColumns()) {
+			if (column.getType().isEnum()) {
 				continue;
 			}
 
-			if (field.getAnnotation(ForeignKeyEntity.class) != null) {
-				var tempAlias = UniqueIdentifier.generate(tableModule.getTableName(field.getType()).substring(0, 1), field.getName());
-				fields.add(new TableColumnReference(tableModule.getTableName(instanceClass), field, tempAlias, alias));
-				fields.addAll(getAllFields((Class<? extends BaseEntity>) field.getType(), tempAlias));
-			} else {
-				fields.add(new TableColumnReference(tableModule.getTableName(instanceClass), field, alias, ""));
+			fields.add(new TableColumnReference(metadata.getTableName(), column, alias, ""));
+		}
+
+		for (var foreignKey : metadata.getForeignKeys()) {
+			if (foreignKey.isEnum()) {
+				continue;
 			}
+
+			var tempAlias = identifiers.generate(foreignKey.getReferencedTableName().substring(0, 1));
+			fields.add(new TableColumnReference(metadata.getTableName(), foreignKey, tempAlias, alias));
+			fields.addAll(getAllFields(foreignKey.getEntityType(), tempAlias, identifiers));
 		}
 
 		return fields;
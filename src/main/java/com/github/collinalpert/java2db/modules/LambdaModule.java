@@ -0,0 +1,501 @@
+package com.github.collinalpert.java2db.modules;
+
+import com.github.collinalpert.java2db.database.ColumnMetadata;
+import com.github.collinalpert.java2db.database.EntityMetadata;
+import com.github.collinalpert.java2db.queries.SqlFragment;
+import com.github.collinalpert.lambda2sql.Lambda2Sql;
+import com.github.collinalpert.lambda2sql.functions.SerializedFunctionalInterface;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * A helper module which translates lambda expressions into SQL using Lambda2Sql.
+ * Values captured by a lambda are not written into the SQL. Instead, they are replaced by {@code ?} placeholders
+ * and returned as parameters, so that the resulting statement can be prepared once and executed with different values.
+ * <p>
+ * Since parsing the bytecode of a lambda is expensive, the translations are cached by the shape of a lambda,
+ * meaning the method implementing it and the types of the values it captures. When a lambda with a known shape
+ * is translated again, only its captured values are read and bound to the cached SQL.
+ *
+ * @author Collin Alpert
+ */
+public class LambdaModule {
+
+	/**
+	 * The prefix of the markers which replace captured strings during the translation.
+	 */
+	private static final String STRING_MARKER = "__java2db_parameter_";
+
+	/**
+	 * The first marker value used for captured integers. It is unlikely to appear in a lambda on its own.
+	 */
+	private static final int INTEGER_MARKER_BASE = 2_046_381_500;
+
+	/**
+	 * The first marker value used for captured longs. It is unlikely to appear in a lambda on its own.
+	 */
+	private static final long LONG_MARKER_BASE = 7_351_946_280_000L;
+
+	/**
+	 * The first marker value used for captured shorts. It is unlikely to appear in a lambda on its own.
+	 */
+	private static final short SHORT_MARKER_BASE = 31_507;
+
+	/**
+	 * The first marker value used for captured doubles, floats and big decimals. Its fraction can be represented exactly by all of them,
+	 * so every one of them is written with the same digits.
+	 */
+	private static final double DECIMAL_MARKER_BASE = 3_046_381.5;
+
+	/**
+	 * The first marker values used for captured dates and times. They are unlikely to appear in a lambda on their own.
+	 */
+	private static final LocalDate DATE_MARKER_BASE = LocalDate.of(2946, 3, 17);
+	private static final LocalDateTime DATE_TIME_MARKER_BASE = LocalDateTime.of(2946, 3, 17, 13, 37, 21);
+	private static final LocalTime TIME_MARKER_BASE = LocalTime.of(13, 37, 21, 987_654_000);
+
+	/**
+	 * Matches string literals and numbers in the SQL generated by Lambda2Sql.
+	 */
+	private static final Pattern LITERAL_PATTERN = Pattern.compile("'[^']*'|\\b\\d+(?:\\.\\d+)?\\b");
+
+	/**
+	 * Stands for lambdas which have been translated before, but whose translation could not be parameterised.
+	 */
+	private static final Template NOT_PARAMETERIZABLE = new Template(null, List.of());
+
+	/**
+	 * The cached translations, keyed by the shape of a lambda and the table name.
+	 */
+	private static final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * The {@code writeReplace} method of every lambda class, which returns the {@link SerializedLambda} of a lambda.
+	 */
+	private static final ClassValue<Method> writeReplaceMethods = new ClassValue<>() {
+		@Override
+		protected Method computeValue(Class<?> type) {
+			try {
+				var method = type.getDeclaredMethod("writeReplace");
+				method.setAccessible(true);
+				return method;
+			} catch (NoSuchMethodException e) {
+				return null;
+			}
+		}
+	};
+
+	/**
+	 * Gets the hit and miss counts of the translation cache.
+	 *
+	 * @return A snapshot of the translation cache's current state.
+	 */
+	public static CacheStatistics getCacheStatistics() {
+		return new CacheStatistics(hits.get(), misses.get(), templates.size());
+	}
+
+	/**
+	 * Removes all cached translations.
+	 */
+	public static void clearCache() {
+		templates.clear();
+	}
+
+	/**
+	 * Translates a lambda into a parameterised SQL fragment.
+	 * Captured strings, numbers except bytes, and dates and times become parameters. If a lambda captures values which cannot be bound this way,
+	 * for example a {@link java.util.List} used for an IN condition or a {@link Byte}, the values are written into the SQL like before.
+	 *
+	 * @param lambda    The lambda to translate.
+	 * @param tableName The table name to prefix the columns with.
+	 * @return The SQL representation of the lambda along with the captured values.
+	 */
+	public SqlFragment toSql(SerializedFunctionalInterface lambda, String tableName) {
+		var values = new ArrayList<>();
+		String key;
+		try {
+			key = createKey(lambda, values, new StringBuilder(tableName).append('|'));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			key = null;
+		}
+
+		if (key == null) {
+			// The lambda captures values which cannot be bound. Fall back to the SQL containing the actual values.
+			misses.incrementAndGet();
+			return new SqlFragment(Lambda2Sql.toSql(lambda, tableName));
+		}
+
+		var template = templates.get(key);
+		if (template != null) {
+			hits.incrementAndGet();
+			return template == NOT_PARAMETERIZABLE ? new SqlFragment(Lambda2Sql.toSql(lambda, tableName)) : template.bind(values);
+		}
+
+		misses.incrementAndGet();
+		template = createTemplate(lambda, tableName);
+		templates.put(key, template == null ? NOT_PARAMETERIZABLE : template);
+		return template == null ? new SqlFragment(Lambda2Sql.toSql(lambda, tableName)) : template.bind(values);
+	}
+
+	/**
+	 * Finds the column a lambda like {@code Person::getName} refers to.
+	 *
+	 * @param lambda   The lambda returning a column of an entity.
+	 * @param metadata The entity the lambda belongs to.
+	 * @return The column the lambda refers to.
+	 * @throws IllegalArgumentException if the lambda does not simply return a column of the entity.
+	 */
+	public ColumnMetadata toColumn(SerializedFunctionalInterface lambda, EntityMetadata metadata) {
+		// Lambda2Sql writes a column as `table`.`column`, so the quotes are removed to compare it with the columns of the entity.
+		var sql = toSql(lambda, metadata.getTableName()).getSql().replace("`", "").trim();
+		var prefix = metadata.getTableName() + ".";
+		if (sql.startsWith(prefix)) {
+			var name = sql.substring(prefix.length());
+			for (var column : metadata.getColumns()) {
+				if (column.getColumnName().equals(name) || column.getFieldName().equals(name)) {
+					return column;
+				}
+			}
+		}
+
+		throw new IllegalArgumentException(String.format("The function does not return a column of %s.", metadata.getType().getSimpleName()));
+	}
+
+	/**
+	 * Translates a lambda into a template by replacing its captured values with markers.
+	 *
+	 * @param lambda    The lambda to translate.
+	 * @param tableName The table name to prefix the columns with.
+	 * @return The template, or {@code null} if the translation of the lambda cannot be parameterised.
+	 */
+	private Template createTemplate(SerializedFunctionalInterface lambda, String tableName) {
+		try {
+			var values = new ArrayList<>();
+			var markedLambda = createMarkedCopy(lambda, values);
+			if (markedLambda != null) {
+				return Template.parse(Lambda2Sql.toSql(markedLambda, tableName), values);
+			}
+		} catch (ReflectiveOperationException | IOException | RuntimeException e) {
+			// The lambda cannot be copied. The caller falls back to the SQL containing the actual values.
+		}
+
+		return null;
+	}
+
+	/**
+	 * Describes the shape of a lambda and collects the values it captures which can be bound as parameters.
+	 * The values are collected in the same order in which {@link #createMarkedCopy(Object, List)} creates markers for them.
+	 * Captured values which end up in the SQL itself, like booleans or enums, are part of the shape.
+	 *
+	 * @param lambda The lambda to describe.
+	 * @param values The list the bindable values are added to.
+	 * @param key    The builder the shape is appended to.
+	 * @return The key describing the shape, or {@code null} if the lambda captures a value whose translation cannot be cached.
+	 */
+	private String createKey(Object lambda, List<Object> values, StringBuilder key) throws ReflectiveOperationException {
+		var serializedLambda = getSerializedLambda(lambda);
+		key.append(serializedLambda.getImplClass()).append('.').append(serializedLambda.getImplMethodName()).append(serializedLambda.getImplMethodSignature()).append('(');
+		for (int i = 0; i < serializedLambda.getCapturedArgCount(); i++) {
+			var argument = serializedLambda.getCapturedArg(i);
+			if (argument instanceof SerializedFunctionalInterface) {
+				if (createKey(argument, values, key) == null) {
+					return null;
+				}
+			} else if (isBindable(argument)) {
+				key.append(argument.getClass().getSimpleName());
+				values.add(argument);
+			} else if (argument == null || argument instanceof Boolean || argument instanceof Character || argument instanceof Enum) {
+				key.append(argument == null ? "null" : argument.getClass().getName() + '=' + argument);
+			} else {
+				return null;
+			}
+
+			key.append(',');
+		}
+
+		return key.append(')').toString();
+	}
+
+	/**
+	 * Creates a copy of a lambda in which every captured value which can be bound as a parameter is replaced by a marker.
+	 * Captured lambdas, for example from calls to {@code SqlPredicate#and}, are copied recursively.
+	 *
+	 * @param lambda The lambda to copy.
+	 * @param values The list the replaced values are added to, in the order their markers were created.
+	 * @return The copied lambda, or {@code null} if a captured value is not supported.
+	 */
+	private SerializedFunctionalInterface createMarkedCopy(Object lambda, List<Object> values) throws ReflectiveOperationException, IOException {
+		var serializedLambda = getSerializedLambda(lambda);
+		if (serializedLambda.getCapturedArgCount() == 0) {
+			return (SerializedFunctionalInterface) lambda;
+		}
+
+		var capturedArgs = new Object[serializedLambda.getCapturedArgCount()];
+		for (int i = 0; i < capturedArgs.length; i++) {
+			var argument = serializedLambda.getCapturedArg(i);
+			if (argument instanceof SerializedFunctionalInterface) {
+				if ((capturedArgs[i] = createMarkedCopy(argument, values)) == null) {
+					return null;
+				}
+			} else if (isBindable(argument)) {
+				capturedArgs[i] = createMarker(argument, values.size());
+				values.add(argument);
+			} else if (argument == null || argument instanceof Boolean || argument instanceof Character || argument instanceof Enum) {
+				capturedArgs[i] = argument;
+			} else {
+				return null;
+			}
+		}
+
+		var classLoader = lambda.getClass().getClassLoader();
+		var capturingClass = Class.forName(serializedLambda.getCapturingClass().replace('/', '.'), false, classLoader);
+		var copy = new SerializedLambda(capturingClass, serializedLambda.getFunctionalInterfaceClass(), serializedLambda.getFunctionalInterfaceMethodName(),
+				serializedLambda.getFunctionalInterfaceMethodSignature(), serializedLambda.getImplMethodKind(), serializedLambda.getImplClass(),
+				serializedLambda.getImplMethodName(), serializedLambda.getImplMethodSignature(), serializedLambda.getInstantiatedMethodType(), capturedArgs);
+
+		return (SerializedFunctionalInterface) deserialize(copy, classLoader);
+	}
+
+	/**
+	 * Decides if a captured value can be replaced by a marker and bound as a parameter.
+	 * Bytes are not, since every possible marker is a number which is likely to appear in a lambda on its own.
+	 *
+	 * @param value The captured value.
+	 * @return {@code True} if the value is bound as a parameter, {@code false} if it has to be written into the SQL.
+	 */
+	private static boolean isBindable(Object value) {
+		return value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Short
+				|| value instanceof Double || value instanceof Float || value instanceof BigDecimal
+				|| value instanceof LocalDate || value instanceof LocalDateTime || value instanceof LocalTime;
+	}
+
+	private static Object createMarker(Object value, int index) {
+		if (value instanceof Integer) {
+			return INTEGER_MARKER_BASE + index;
+		}
+
+		if (value instanceof Long) {
+			return LONG_MARKER_BASE + index;
+		}
+
+		if (value instanceof Short) {
+			return (short) (SHORT_MARKER_BASE + index);
+		}
+
+		if (value instanceof Double) {
+			return DECIMAL_MARKER_BASE + index;
+		}
+
+		if (value instanceof Float) {
+			return (float) (DECIMAL_MARKER_BASE + index);
+		}
+
+		if (value instanceof BigDecimal) {
+			return BigDecimal.valueOf(DECIMAL_MARKER_BASE + index);
+		}
+
+		if (value instanceof LocalDate) {
+			return DATE_MARKER_BASE.plusDays(index);
+		}
+
+		if (value instanceof LocalDateTime) {
+			return DATE_TIME_MARKER_BASE.plusSeconds(index);
+		}
+
+		if (value instanceof LocalTime) {
+			return TIME_MARKER_BASE.plusSeconds(index);
+		}
+
+		return STRING_MARKER + index + "__";
+	}
+
+	private static SerializedLambda getSerializedLambda(Object lambda) throws ReflectiveOperationException {
+		var writeReplace = writeReplaceMethods.get(lambda.getClass());
+		if (writeReplace == null) {
+			throw new NoSuchMethodException(String.format("%s is not a serializable lambda.", lambda.getClass().getName()));
+		}
+
+		return (SerializedLambda) writeReplace.invoke(lambda);
+	}
+
+	/**
+	 * Turns a {@link SerializedLambda} back into a lambda by passing it through Java serialization,
+	 * which takes care of calling the {@code $deserializeLambda$} method of the capturing class.
+	 */
+	private static Object deserialize(SerializedLambda serializedLambda, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+		var output = new ByteArrayOutputStream();
+		try (var stream = new ObjectOutputStream(output)) {
+			stream.writeObject(serializedLambda);
+		}
+
+		try (var stream = new ObjectInputStream(new ByteArrayInputStream(output.toByteArray())) {
+			@Override
+			protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+				try {
+					return Class.forName(description.getName(), false, classLoader);
+				} catch (ClassNotFoundException e) {
+					return super.resolveClass(description);
+				}
+			}
+		}) {
+			return stream.readObject();
+		}
+	}
+
+	/**
+	 * The SQL of a translated lambda with placeholders and the information which captured value belongs to which placeholder.
+	 */
+	private static final class Template {
+
+		private final String sql;
+		private final List<Slot> slots;
+
+		private Template(String sql, List<Slot> slots) {
+			this.sql = sql;
+			this.slots = slots;
+		}
+
+		/**
+		 * Replaces the markers in SQL generated from a marked lambda with placeholders.
+		 *
+		 * @param sql    The generated SQL.
+		 * @param values The captured values the markers stand for.
+		 * @return The template, or {@code null} if a marker appears in a way it cannot be replaced by a placeholder or does not appear at all.
+		 */
+		private static Template parse(String sql, List<Object> values) {
+			var markers = new String[values.size()];
+			var numberMarkers = new HashMap<String, Integer>();
+			var temporalMarkers = new HashMap<String, Integer>();
+			for (int i = 0; i < markers.length; i++) {
+				var value = values.get(i);
+				markers[i] = createMarker(value, i).toString();
+				if (value instanceof LocalDate || value instanceof LocalDateTime || value instanceof LocalTime) {
+					temporalMarkers.put(markers[i], i);
+				} else if (!(value instanceof String)) {
+					numberMarkers.put(markers[i], i);
+				}
+			}
+
+			var builder = new StringBuilder();
+			var slots = new ArrayList<Slot>();
+			var matcher = LITERAL_PATTERN.matcher(sql);
+			var lastEnd = 0;
+			while (matcher.find()) {
+				var slot = matcher.group().charAt(0) == '\'' ? parseStringLiteral(matcher.group(), temporalMarkers) : parseNumber(matcher.group(), numberMarkers);
+				if (slot == null) {
+					continue;
+				}
+
+				builder.append(sql, lastEnd, matcher.start()).append('?');
+				slots.add(slot);
+				lastEnd = matcher.end();
+			}
+
+			builder.append(sql, lastEnd, sql.length());
+			var parameterizedSql = builder.toString();
+			for (var marker : markers) {
+				if (parameterizedSql.contains(marker)) {
+					return null;
+				}
+			}
+
+			// A value whose marker was written differently than expected would otherwise stay in the cached SQL for every later call.
+			var boundValues = new boolean[markers.length];
+			for (var slot : slots) {
+				boundValues[slot.index] = true;
+			}
+
+			for (var isBound : boundValues) {
+				if (!isBound) {
+					return null;
+				}
+			}
+
+			return new Template(parameterizedSql, slots);
+		}
+
+		private static Slot parseStringLiteral(String literal, Map<String, Integer> temporalMarkers) {
+			// Dates and times are written as string literals, which only consist of the value.
+			var temporalIndex = temporalMarkers.get(literal.substring(1, literal.length() - 1));
+			if (temporalIndex != null) {
+				return new Slot(temporalIndex, "", "");
+			}
+
+			var markerStart = literal.indexOf(STRING_MARKER);
+			if (markerStart == -1) {
+				return null;
+			}
+
+			var indexStart = markerStart + STRING_MARKER.length();
+			var indexEnd = literal.indexOf("__", indexStart);
+			var suffix = literal.substring(indexEnd + 2, literal.length() - 1);
+			if (suffix.contains(STRING_MARKER)) {
+				// Two markers in one literal cannot be represented by a single placeholder. The template will be rejected.
+				return null;
+			}
+
+			return new Slot(Integer.parseInt(literal.substring(indexStart, indexEnd)), literal.substring(1, markerStart), suffix);
+		}
+
+		private static Slot parseNumber(String number, Map<String, Integer> numberMarkers) {
+			var index = numberMarkers.get(number);
+			return index == null ? null : new Slot(index, "", "");
+		}
+
+		private SqlFragment bind(List<Object> values) {
+			var parameters = new Object[this.slots.size()];
+			for (int i = 0; i < parameters.length; i++) {
+				parameters[i] = this.slots.get(i).getValue(values);
+			}
+
+			return new SqlFragment(this.sql, parameters);
+		}
+	}
+
+	/**
+	 * Describes a placeholder in a template. If the captured value was embedded in a string literal,
+	 * for example in a LIKE condition, the rest of the literal is kept so it can be added to the value.
+	 */
+	private static final class Slot {
+
+		private final int index;
+		private final String prefix;
+		private final String suffix;
+
+		private Slot(int index, String prefix, String suffix) {
+			this.index = index;
+			this.prefix = prefix;
+			this.suffix = suffix;
+		}
+
+		private Object getValue(List<Object> values) {
+			var value = values.get(this.index);
+			if (this.prefix.isEmpty() && this.suffix.isEmpty()) {
+				return value;
+			}
+
+			return this.prefix + value + this.suffix;
+		}
+	}
+}
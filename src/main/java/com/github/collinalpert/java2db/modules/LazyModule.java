@@ -4,6 +4,7 @@ import java.util.function.Supplier;
 
 /**
  * A helper module to support lazy loading of objects.
+ * The value is only created once, even if it is requested by multiple threads at the same time.
  *
  * @param <T> The type of object to instantiate lazily.
  * @author Collin Alpert
@@ -11,17 +12,24 @@ import java.util.function.Supplier;
 public class LazyModule<T> {
 
 	private final Supplier<T> valueFactory;
-	private T value;
+	private volatile T value;
 
 	public LazyModule(Supplier<T> valueFactory) {
 		this.valueFactory = valueFactory;
 	}
 
 	public T getValue() {
-		if (value != null) {
-			return value;
+		var current = value;
+		if (current != null) {
+			return current;
 		}
 
-		return value = valueFactory.get();
+		synchronized (this) {
+			if (value == null) {
+				value = valueFactory.get();
+			}
+
+			return value;
+		}
 	}
 }
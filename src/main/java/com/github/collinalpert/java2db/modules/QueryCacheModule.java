@@ -0,0 +1,76 @@
+package com.github.collinalpert.java2db.modules;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A helper module which caches the results of queries which were marked as cached.
+ * Results are cached by their query and become invalid as soon as one of the tables they were read from is changed through a service.
+ * <p>
+ * Every table has a version which is part of the cache key of every result read from it. Changing a table increases its version,
+ * so results read before the change are not found anymore and are eventually evicted from the cache.
+ *
+ * @author Collin Alpert
+ */
+public class QueryCacheModule {
+
+	/**
+	 * The cache shared by all queries.
+	 */
+	private static final CachingModule<Object> cache;
+
+	/**
+	 * The current version of every table which has been queried or changed.
+	 */
+	private static final Map<String, AtomicLong> tableVersions;
+
+	static {
+		cache = new CachingModule<>();
+		tableVersions = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Gets a query result from the cache, or executes the query if its result is not cached.
+	 *
+	 * @param key         The key of the query, which has to contain the statement and its parameters.
+	 * @param tables      The tables the query reads from.
+	 * @param query       Executes the query.
+	 * @param expiration  The duration a result is valid.
+	 * @param staleWindow The duration after the expiration during which the expired result is still returned while it is reloaded.
+	 * @param <T>         The type of the result.
+	 * @return The result of the query.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getOrAdd(String key, Collection<String> tables, Supplier<T> query, Duration expiration, Duration staleWindow) {
+		var builder = new StringBuilder(key);
+		for (var table : tables) {
+			builder.append('#').append(table).append('@').append(getVersion(table).get());
+		}
+
+		return (T) cache.getOrAdd(builder.toString(), (Supplier<Object>) query, expiration, staleWindow);
+	}
+
+	/**
+	 * Invalidates all cached results which were read from a table.
+	 *
+	 * @param tableName The name of the table which was changed.
+	 */
+	public void invalidate(String tableName) {
+		getVersion(tableName).incrementAndGet();
+	}
+
+	/**
+	 * @return A snapshot of the statistics of the query cache.
+	 */
+	public CacheStatistics getStatistics() {
+		return cache.getStatistics();
+	}
+
+	private static AtomicLong getVersion(String tableName) {
+		return tableVersions.computeIfAbsent(tableName, table -> new AtomicLong());
+	}
+}
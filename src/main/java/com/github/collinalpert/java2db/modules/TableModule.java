@@ -14,6 +14,21 @@ public class TableModule {
 
 	private static final AnnotationModule annotationModule;
 
+	/**
+	 * The table names by entity class, so the annotation only has to be read once per class.
+	 */
+	private static final ClassValue<String> tableNames = new ClassValue<>() {
+		@Override
+		protected String computeValue(Class<?> type) {
+			var tableNameAnnotation = type.getAnnotation(TableName.class);
+			if (tableNameAnnotation == null) {
+				return type.getSimpleName().toLowerCase();
+			}
+
+			return tableNameAnnotation.value();
+		}
+	};
+
 	static {
 		annotationModule = new AnnotationModule();
 	}
@@ -26,12 +41,7 @@ public class TableModule {
 	 * @return The table name.
 	 */
 	public String getTableName(Class<?> type) {
-		var tableNameAnnotation = type.getAnnotation(TableName.class);
-		if (tableNameAnnotation == null) {
-			return type.getSimpleName().toLowerCase();
-		}
-
-		return tableNameAnnotation.value();
+		return tableNames.get(type);
 	}
 
 	/**
@@ -4,19 +4,57 @@ import com.github.collinalpert.java2db.entities.BaseEntity;
 import com.github.collinalpert.java2db.modules.CachingModule;
 import com.github.collinalpert.java2db.modules.LazyModule;
 import com.github.collinalpert.java2db.queries.EntityQuery;
+import com.github.collinalpert.java2db.utilities.AsyncExecutor;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
  * Extended class that adds caching functionality to the pagination implementation.
- * Note that caching will not be available for pages that are fetched asynchronously.
+ * Optionally, the pages around a served page can be prefetched into the cache in the background using {@link #prefetch(int, int)}.
  *
  * @author Collin Alpert
  */
 public class CacheablePaginationResult<T extends BaseEntity> extends PaginationResult<T> {
 
+	/**
+	 * The maximum amount of pages which can be waiting to be prefetched across all paginations.
+	 * When this is exceeded, new prefetches are dropped, since a prefetch is only an optimization.
+	 */
+	private static final int PREFETCH_QUEUE_SIZE = 64;
+
+	/**
+	 * The maximum amount of pages which are prefetched at the same time across all paginations,
+	 * so prefetching never takes up more than a small part of the connection pool.
+	 */
+	private static final int MAX_RUNNING_PREFETCHES = 2;
+
+	/**
+	 * The prefetches which wait to be passed to the {@link AsyncExecutor}. They are only passed on once one of the running prefetches finished,
+	 * so they can still be cancelled cheaply and do not crowd out other asynchronous operations.
+	 */
+	private static final Queue<FutureTask<?>> pendingPrefetches;
+	private static final Semaphore prefetchPermits;
+	private static final AtomicInteger runningPrefetches;
+
+	static {
+		pendingPrefetches = new ConcurrentLinkedQueue<>();
+		prefetchPermits = new Semaphore(PREFETCH_QUEUE_SIZE);
+		runningPrefetches = new AtomicInteger();
+	}
+
 	/**
 	 * The duration an entry in the cache is valid to use for.
 	 */
@@ -28,28 +66,68 @@ public class CacheablePaginationResult<T extends BaseEntity> extends PaginationR
 	private final LazyModule<CachingModule<List<T>>> listCache;
 
 	/**
-	 * The caching module for {@link Stream} results.
+	 * The caching module for array results.
 	 */
-	private final LazyModule<CachingModule<Stream<T>>> streamCache;
+	private final LazyModule<CachingModule<T[]>> arrayCache;
 
 	/**
-	 * The caching module for array results.
+	 * The caching module for pages of a keyset pagination.
 	 */
-	private final LazyModule<CachingModule<T[]>> arrayCache;
+	private final LazyModule<CachingModule<KeysetPage<T>>> keysetCache;
+
+	/**
+	 * The pending prefetches of numbered pages, by their page number.
+	 */
+	private final Map<Integer, Future<?>> prefetches;
+
+	/**
+	 * Is incremented every time a keyset page is requested, so a prefetch for a page the user moved away from stops walking.
+	 */
+	private final AtomicLong keysetGeneration;
+
+	private volatile Future<?> keysetPrefetch;
+	private volatile int pagesAhead;
+	private volatile int pagesBehind;
+	private volatile int currentPage;
 
 	/**
 	 * Constructor that allows the creation of a cached pagination.
 	 * To obtain an instance, please use the {@code createPagination} methods in the {@link com.github.collinalpert.java2db.services.BaseService}
 	 *
-	 * @param queries         The queries that represent the operations of retrieving specific pages from the database.
+	 * @param querySupplier   Creates the query which selects all entities of the pagination.
+	 * @param entriesPerPage  The number of entries on each page.
 	 * @param cacheExpiration The duration a query result is valid for in the cache.
 	 */
-	public CacheablePaginationResult(List<EntityQuery<T>> queries, Duration cacheExpiration) {
-		super(queries);
+	public CacheablePaginationResult(Supplier<EntityQuery<T>> querySupplier, int entriesPerPage, Duration cacheExpiration) {
+		super(querySupplier, entriesPerPage);
 		this.cacheExpiration = cacheExpiration;
 		this.listCache = new LazyModule<>(CachingModule::new);
-		this.streamCache = new LazyModule<>(CachingModule::new);
 		this.arrayCache = new LazyModule<>(CachingModule::new);
+		this.keysetCache = new LazyModule<>(CachingModule::new);
+		this.prefetches = new ConcurrentHashMap<>();
+		this.keysetGeneration = new AtomicLong();
+	}
+
+	/**
+	 * Enables prefetching of adjacent pages. After a page is served, the pages around it are loaded into the cache in the background,
+	 * so browsing sequentially does not have to wait for the database.
+	 * Prefetched pages are used by {@link #getPage(int)}, {@link #getPageAsStream(int)} and the keyset methods.
+	 * Since arrays are cached separately, {@link #getPageAsArray(int)} neither uses nor triggers prefetches.
+	 * When a page far away from the prefetched ones is requested, the prefetches which have not started yet are cancelled.
+	 * Prefetches run on the {@link AsyncExecutor}, but only two of them at a time across all paginations.
+	 *
+	 * @param pagesAhead  The amount of pages after a served page to prefetch.
+	 * @param pagesBehind The amount of pages before a served page to prefetch.
+	 * @return This pagination, with prefetching enabled.
+	 */
+	public CacheablePaginationResult<T> prefetch(int pagesAhead, int pagesBehind) {
+		if (pagesAhead < 0 || pagesBehind < 0) {
+			throw new IllegalArgumentException("The amount of pages to prefetch cannot be negative.");
+		}
+
+		this.pagesAhead = pagesAhead;
+		this.pagesBehind = pagesBehind;
+		return this;
 	}
 
 	/**
@@ -62,26 +140,31 @@ public class CacheablePaginationResult<T extends BaseEntity> extends PaginationR
 	 */
 	@Override
 	public List<T> getPage(int number) {
-		return listCache.getValue().getOrAdd(Integer.toString(number), () -> super.getPage(number), cacheExpiration);
+		var page = listCache.getValue().getOrAdd(Integer.toString(number), () -> super.getPage(number), cacheExpiration);
+		schedulePrefetches(number, page.size() == getEntriesPerPage());
+		return page;
 	}
 
 	/**
 	 * Gets a page by its identifier, or rather its number, an returns it as a {@link Stream}.
 	 * If this particular page has already been requested and has not expired yet, it will be returned from the in-memory cache.
 	 * Otherwise it will be fetched from the database.
+	 * Since a {@code Stream} can only be consumed once, the page is cached as a {@link List} and a new {@code Stream} is created for every call.
 	 *
 	 * @param number The number of the page. The first page has the index 1.
 	 * @return A {@link Stream} of entities which are displayed on the requested page.
 	 */
 	@Override
 	public Stream<T> getPageAsStream(int number) {
-		return streamCache.getValue().getOrAdd(Integer.toString(number), () -> super.getPageAsStream(number), cacheExpiration);
+		return getPage(number).stream();
 	}
 
 	/**
 	 * Gets a page by its identifier, or rather its number, an returns it as an array.
 	 * If this particular page has already been requested and has not expired yet, it will be returned from the in-memory cache.
 	 * Otherwise it will be fetched from the database.
+	 * Pages requested as arrays are cached separately from the ones requested as lists, so this method does not prefetch adjacent pages,
+	 * and does not use the pages prefetched by the other methods. Use {@link #getPage(int)} to profit from prefetching.
 	 *
 	 * @param number The number of the page. The first page has the index 1.
 	 * @return An array of entities which are displayed on the requested page.
@@ -91,6 +174,60 @@ public class CacheablePaginationResult<T extends BaseEntity> extends PaginationR
 		return arrayCache.getValue().getOrAdd(Integer.toString(number), () -> super.getPageAsArray(number), cacheExpiration);
 	}
 
+	/**
+	 * Gets the first page of a keyset pagination.
+	 * If it has already been requested and has not expired yet, it will be returned from the in-memory cache.
+	 *
+	 * @return The first page, along with the token for the next page.
+	 */
+	@Override
+	public KeysetPage<T> getFirstKeysetPage() {
+		var page = keysetCache.getValue().getOrAdd("first", super::getFirstKeysetPage, cacheExpiration);
+		scheduleKeysetPrefetch(page);
+		return page;
+	}
+
+	/**
+	 * Gets the last page of a keyset pagination.
+	 * If it has already been requested and has not expired yet, it will be returned from the in-memory cache.
+	 *
+	 * @return The last page, along with the token for the previous page.
+	 */
+	@Override
+	public KeysetPage<T> getLastKeysetPage() {
+		var page = keysetCache.getValue().getOrAdd("last", super::getLastKeysetPage, cacheExpiration);
+		scheduleKeysetPrefetch(page);
+		return page;
+	}
+
+	/**
+	 * Gets the page which follows the page a token was created for.
+	 * If it has already been requested and has not expired yet, it will be returned from the in-memory cache.
+	 *
+	 * @param token The token for the next page, as returned by {@link KeysetPage#getNextToken()}.
+	 * @return The page after the token.
+	 */
+	@Override
+	public KeysetPage<T> getPageAfter(String token) {
+		var page = keysetCache.getValue().getOrAdd("after:" + token, () -> super.getPageAfter(token), cacheExpiration);
+		scheduleKeysetPrefetch(page);
+		return page;
+	}
+
+	/**
+	 * Gets the page which precedes the page a token was created for.
+	 * If it has already been requested and has not expired yet, it will be returned from the in-memory cache.
+	 *
+	 * @param token The token for the previous page, as returned by {@link KeysetPage#getPreviousToken()}.
+	 * @return The page before the token.
+	 */
+	@Override
+	public KeysetPage<T> getPageBefore(String token) {
+		var page = keysetCache.getValue().getOrAdd("before:" + token, () -> super.getPageBefore(token), cacheExpiration);
+		scheduleKeysetPrefetch(page);
+		return page;
+	}
+
 	/**
 	 * Marks the entire cache of the pagination as invalid, causing a reload the next time and value is requested.
 	 * This call is equivalent to {@code invalidateCache(null)}.
@@ -107,6 +244,151 @@ public class CacheablePaginationResult<T extends BaseEntity> extends PaginationR
 	 */
 	public void invalidateCache(String name) {
 		listCache.getValue().invalidate(name);
-		streamCache.getValue().invalidate(name);
+		arrayCache.getValue().invalidate(name);
+		keysetCache.getValue().invalidate(name);
+	}
+
+	/**
+	 * Cancels the prefetches which are no longer near the requested page and schedules the missing ones around it.
+	 *
+	 * @param number   The number of the page which was served.
+	 * @param hasAhead If there can be pages after the served page. This is not the case when the served page was not full.
+	 */
+	private void schedulePrefetches(int number, boolean hasAhead) {
+		currentPage = number;
+		prefetches.forEach((page, future) -> {
+			if (future.isDone() || !isNearCurrentPage(page)) {
+				future.cancel(false);
+				prefetches.remove(page, future);
+			}
+		});
+
+		if (pagesAhead == 0 && pagesBehind == 0) {
+			return;
+		}
+
+		var cache = listCache.getValue();
+		for (int i = 1; hasAhead && i <= pagesAhead; i++) {
+			schedulePrefetch(cache, number + i);
+		}
+
+		for (int i = 1; i <= pagesBehind && number - i >= 1; i++) {
+			schedulePrefetch(cache, number - i);
+		}
+	}
+
+	private void schedulePrefetch(CachingModule<List<T>> cache, int number) {
+		var name = Integer.toString(number);
+		if (cache.contains(name)) {
+			return;
+		}
+
+		prefetches.compute(number, (page, existing) -> {
+			if (existing != null && !existing.isDone()) {
+				return existing;
+			}
+
+			return submitPrefetch(() -> {
+				// The user might have jumped elsewhere while this prefetch was waiting.
+				if (isNearCurrentPage(number)) {
+					cache.getOrAdd(name, () -> super.getPage(number), cacheExpiration);
+				}
+			});
+		});
+	}
+
+	private boolean isNearCurrentPage(int number) {
+		return number >= currentPage - pagesBehind && number <= currentPage + pagesAhead;
+	}
+
+	/**
+	 * Prefetches the keyset pages before and after a served page by following their tokens.
+	 * A prefetch which is still running for a previously served page stops after the page it is currently loading.
+	 *
+	 * @param page The keyset page which was served.
+	 */
+	private void scheduleKeysetPrefetch(KeysetPage<T> page) {
+		var generation = keysetGeneration.incrementAndGet();
+		var previous = keysetPrefetch;
+		if (previous != null) {
+			previous.cancel(false);
+		}
+
+		if (pagesAhead == 0 && pagesBehind == 0) {
+			return;
+		}
+
+		var cache = keysetCache.getValue();
+		keysetPrefetch = submitPrefetch(() -> {
+			var next = page;
+			for (int i = 0; i < pagesAhead && next.hasNext() && keysetGeneration.get() == generation; i++) {
+				var token = next.getNextToken().orElseThrow();
+				next = cache.getOrAdd("after:" + token, () -> super.getPageAfter(token), cacheExpiration);
+			}
+
+			var before = page;
+			for (int i = 0; i < pagesBehind && before.hasPrevious() && keysetGeneration.get() == generation; i++) {
+				var token = before.getPreviousToken().orElseThrow();
+				before = cache.getOrAdd("before:" + token, () -> super.getPageBefore(token), cacheExpiration);
+			}
+		});
+	}
+
+	/**
+	 * Queues a prefetch to run on the {@link AsyncExecutor}. If too many prefetches are already waiting, it is dropped.
+	 *
+	 * @param prefetch The prefetch to run.
+	 * @return The pending prefetch, which is already cancelled if it was dropped.
+	 */
+	private static Future<?> submitPrefetch(Runnable prefetch) {
+		var future = new FutureTask<Void>(prefetch, null);
+		if (!prefetchPermits.tryAcquire()) {
+			// Dropped prefetches are cancelled so they do not appear to be pending forever.
+			future.cancel(false);
+			return future;
+		}
+
+		pendingPrefetches.add(future);
+		drainPrefetches();
+		return future;
+	}
+
+	/**
+	 * Passes waiting prefetches to the {@link AsyncExecutor} as long as fewer than {@link #MAX_RUNNING_PREFETCHES} are running.
+	 * Cancelled prefetches are passed on as well, but finish immediately.
+	 */
+	private static void drainPrefetches() {
+		while (!pendingPrefetches.isEmpty()) {
+			var running = runningPrefetches.get();
+			if (running >= MAX_RUNNING_PREFETCHES) {
+				return;
+			}
+
+			if (!runningPrefetches.compareAndSet(running, running + 1)) {
+				continue;
+			}
+
+			var next = pendingPrefetches.poll();
+			if (next == null) {
+				// Another thread took the last prefetch. The loop checks again, in case one was added in the meantime.
+				runningPrefetches.decrementAndGet();
+				continue;
+			}
+
+			prefetchPermits.release();
+			try {
+				AsyncExecutor.runAsync(() -> {
+					try {
+						next.run();
+					} finally {
+						runningPrefetches.decrementAndGet();
+						drainPrefetches();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				next.cancel(false);
+				runningPrefetches.decrementAndGet();
+			}
+		}
 	}
 }
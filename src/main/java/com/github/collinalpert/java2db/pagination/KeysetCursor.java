@@ -0,0 +1,160 @@
+package com.github.collinalpert.java2db.pagination;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Marks a position in a keyset pagination. It consists of the value of the key the pagination is ordered by and the id of an entity.
+ * To pass it to a client, it can be converted to an opaque token, which does not reveal its structure and can be decoded again.
+ * Tokens only contain simple values, so decoding them never instantiates arbitrary classes.
+ *
+ * @author Collin Alpert
+ */
+public class KeysetCursor {
+
+	private static final char SEPARATOR = '|';
+
+	/**
+	 * The value of the ordering key at this position, or {@code null} if the pagination is only ordered by the id.
+	 */
+	private final Object key;
+
+	/**
+	 * The id of the entity at this position.
+	 */
+	private final long id;
+
+	public KeysetCursor(Object key, long id) {
+		this.key = key;
+		this.id = id;
+	}
+
+	public Object getKey() {
+		return key;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Converts this cursor to a token which can be passed to a client.
+	 *
+	 * @return An opaque, URL-safe token representing this cursor.
+	 * @throws IllegalArgumentException if the type of the key is not supported.
+	 */
+	public String toToken() {
+		var plain = new StringBuilder().append(typeOf(key)).append(SEPARATOR).append(id).append(SEPARATOR).append(key == null ? "" : key.toString()).toString();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a token created with {@link #toToken()}.
+	 *
+	 * @param token The token to decode.
+	 * @return The cursor represented by the token.
+	 * @throws IllegalArgumentException if the token is malformed.
+	 */
+	public static KeysetCursor fromToken(String token) {
+		try {
+			var plain = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			var firstSeparator = plain.indexOf(SEPARATOR);
+			var secondSeparator = plain.indexOf(SEPARATOR, firstSeparator + 1);
+			if (firstSeparator != 1 || secondSeparator == -1) {
+				throw new IllegalArgumentException("The keyset pagination token is malformed.");
+			}
+
+			var id = Long.parseLong(plain.substring(firstSeparator + 1, secondSeparator));
+			var value = plain.substring(secondSeparator + 1);
+			return new KeysetCursor(parseKey(plain.charAt(0), value), id);
+		} catch (NumberFormatException | DateTimeParseException e) {
+			throw new IllegalArgumentException("The keyset pagination token is malformed.", e);
+		}
+	}
+
+	private static char typeOf(Object key) {
+		if (key == null) {
+			return 'N';
+		}
+
+		if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+			return 'L';
+		}
+
+		if (key instanceof Double) {
+			return 'F';
+		}
+
+		// Floats are kept apart from doubles, since the text of a float read back as a double does not equal the value of a FLOAT column.
+		if (key instanceof Float) {
+			return 'R';
+		}
+
+		if (key instanceof BigDecimal) {
+			return 'M';
+		}
+
+		if (key instanceof Boolean) {
+			return 'B';
+		}
+
+		if (key instanceof String) {
+			return 'S';
+		}
+
+		if (key instanceof LocalDateTime) {
+			return 'T';
+		}
+
+		if (key instanceof LocalDate) {
+			return 'D';
+		}
+
+		if (key instanceof LocalTime) {
+			return 'H';
+		}
+
+		throw new IllegalArgumentException(String.format("Keyset pagination does not support ordering by values of type %s.", key.getClass().getSimpleName()));
+	}
+
+	private static Object parseKey(char type, String value) {
+		switch (type) {
+			case 'N':
+				return null;
+			case 'L':
+				return Long.parseLong(value);
+			case 'F':
+				return Double.parseDouble(value);
+			case 'R':
+				return Float.parseFloat(value);
+			case 'M':
+				return new BigDecimal(value);
+			case 'B':
+				if (!value.equals("true") && !value.equals("false")) {
+					throw new IllegalArgumentException("The keyset pagination token is malformed.");
+				}
+
+				return Boolean.valueOf(value);
+			case 'S':
+				return value;
+			case 'T':
+				return LocalDateTime.parse(value);
+			case 'D':
+				return LocalDate.parse(value);
+			case 'H':
+				return LocalTime.parse(value);
+			default:
+				throw new IllegalArgumentException("The keyset pagination token is malformed.");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return toToken();
+	}
+}
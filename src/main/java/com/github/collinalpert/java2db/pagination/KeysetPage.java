@@ -0,0 +1,53 @@
+package com.github.collinalpert.java2db.pagination;
+
+import com.github.collinalpert.java2db.entities.BaseEntity;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A page of a keyset pagination. Instead of a page number, it provides tokens for the pages before and after it.
+ *
+ * @author Collin Alpert
+ */
+public class KeysetPage<T extends BaseEntity> {
+
+	private final List<T> entities;
+	private final String previousToken;
+	private final String nextToken;
+
+	public KeysetPage(List<T> entities, String previousToken, String nextToken) {
+		this.entities = entities;
+		this.previousToken = previousToken;
+		this.nextToken = nextToken;
+	}
+
+	/**
+	 * @return The entities on this page.
+	 */
+	public List<T> getEntities() {
+		return entities;
+	}
+
+	/**
+	 * @return The token to pass to {@link PaginationResult#getPageBefore(String)} to get the previous page, if there is one.
+	 */
+	public Optional<String> getPreviousToken() {
+		return Optional.ofNullable(previousToken);
+	}
+
+	/**
+	 * @return The token to pass to {@link PaginationResult#getPageAfter(String)} to get the next page, if there is one.
+	 */
+	public Optional<String> getNextToken() {
+		return Optional.ofNullable(nextToken);
+	}
+
+	public boolean hasPrevious() {
+		return previousToken != null;
+	}
+
+	public boolean hasNext() {
+		return nextToken != null;
+	}
+}
@@ -1,52 +1,148 @@
 package com.github.collinalpert.java2db.pagination;
 
 import com.github.collinalpert.java2db.entities.BaseEntity;
+import com.github.collinalpert.java2db.modules.LambdaModule;
 import com.github.collinalpert.java2db.queries.EntityQuery;
 import com.github.collinalpert.java2db.queries.OrderTypes;
+import com.github.collinalpert.java2db.queries.SqlFragment;
+import com.github.collinalpert.java2db.utilities.AsyncExecutor;
 import com.github.collinalpert.lambda2sql.functions.SqlFunction;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.StringJoiner;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
  * Class for a simple pagination implementation.
+ * Pages can either be requested by their number, which uses a LIMIT with an offset, or in keyset mode.
+ * In keyset mode, a page is requested relative to another page using a token, so the database can seek to it directly
+ * instead of skipping all rows before it.
+ * The query for a page is only created when the page is requested and the rows are only counted when the number of pages is requested,
+ * so a pagination takes up the same amount of memory regardless of the size of the table.
  *
  * @author Collin Alpert
  */
 public class PaginationResult<T extends BaseEntity> {
 
-	protected final List<EntityQuery<T>> queries;
+	private static final LambdaModule lambdaModule;
+
+	static {
+		lambdaModule = new LambdaModule();
+	}
+
+	/**
+	 * Creates the query which selects all entities of the pagination. Every page is based on a new query from it.
+	 */
+	private final Supplier<EntityQuery<T>> querySupplier;
+
+	private final int entriesPerPage;
 	private SqlFunction<T, ?>[] orderFunctions;
 	private OrderTypes orderType;
 
-	public PaginationResult(List<EntityQuery<T>> queries) {
-		this.queries = queries;
+	/**
+	 * The amount of rows in the pagination, which is only counted once it is needed.
+	 */
+	private volatile Long count;
+
+	/**
+	 * Creates a pagination. To obtain an instance, please use the {@code createPagination} methods in the {@link com.github.collinalpert.java2db.services.BaseService}.
+	 *
+	 * @param querySupplier  Creates the query which selects all entities of the pagination.
+	 * @param entriesPerPage The number of entries on each page.
+	 */
+	public PaginationResult(Supplier<EntityQuery<T>> querySupplier, int entriesPerPage) {
+		if (entriesPerPage < 1) {
+			throw new IllegalArgumentException("A page must contain at least one entry.");
+		}
+
+		this.querySupplier = querySupplier;
+		this.entriesPerPage = entriesPerPage;
 	}
 
 	/**
-	 * Gets the amount of pages created to split up a query.
+	 * Gets the amount of entries on each page.
 	 *
-	 * @return The number of pages created for the result.
+	 * @return The page size.
 	 */
-	public int getNumberOfPages() {
-		return queries.size();
+	public int getEntriesPerPage() {
+		return entriesPerPage;
 	}
 
 	/**
-	 * Checks a requested page number for validity.
+	 * Gets the amount of rows in this pagination. They are counted the first time this method is called and the result is kept afterwards.
+	 * Use {@link #invalidateCount()} to count them again.
 	 *
-	 * @param pageNumber The page number to validate.
+	 * @return The total number of entries on all pages.
 	 */
-	private void pageNumberCheck(int pageNumber) {
-		if (pageNumber > queries.size()) {
-			throw new IllegalArgumentException("The requested page number exceeds the total number of pages.");
+	public long getCount() {
+		var currentCount = this.count;
+		if (currentCount == null) {
+			this.count = currentCount = querySupplier.get().count();
 		}
 
-		if (pageNumber == 0) {
+		return currentCount;
+	}
+
+	/**
+	 * Estimates the amount of rows in this pagination using the statistics of the database, without counting them.
+	 *
+	 * @return The approximate number of entries on all pages.
+	 * @see EntityQuery#estimateCount()
+	 */
+	public long getApproximateCount() {
+		return querySupplier.get().estimateCount();
+	}
+
+	/**
+	 * Discards the counted amount of rows, so they are counted again the next time they are needed.
+	 */
+	public void invalidateCount() {
+		this.count = null;
+	}
+
+	/**
+	 * Gets the amount of pages needed to display all entries.
+	 * This counts the rows of the pagination the first time it is called, see {@link #getCount()}.
+	 *
+	 * @return The number of pages.
+	 */
+	public int getNumberOfPages() {
+		return toNumberOfPages(getCount());
+	}
+
+	/**
+	 * Gets the approximate amount of pages needed to display all entries, without counting the rows.
+	 *
+	 * @return The approximate number of pages.
+	 * @see #getApproximateCount()
+	 */
+	public int getApproximateNumberOfPages() {
+		return toNumberOfPages(getApproximateCount());
+	}
+
+	private int toNumberOfPages(long count) {
+		return (int) Math.min(Integer.MAX_VALUE, (count + entriesPerPage - 1) / entriesPerPage);
+	}
+
+	/**
+	 * Creates the query for a page. Pages after the last one are empty.
+	 *
+	 * @param pageNumber The number of the page. The first page has the number 1.
+	 * @return The query retrieving the entities on the page.
+	 */
+	private EntityQuery<T> createPageQuery(int pageNumber) {
+		if (pageNumber < 1) {
 			throw new IllegalArgumentException("The first page starts at the number 1.");
 		}
+
+		var offset = Math.multiplyExact(pageNumber - 1, this.entriesPerPage);
+		return querySupplier.get().limit(this.entriesPerPage, offset).orderBy(this.orderType, this.orderFunctions);
 	}
 
 	/**
@@ -56,8 +152,7 @@ public class PaginationResult<T extends BaseEntity> {
 	 * @return A {@link List} of entities on this page.
 	 */
 	public List<T> getPage(int number) {
-		pageNumberCheck(number);
-		return queries.get(number - 1).orderBy(this.orderType, this.orderFunctions).toList();
+		return createPageQuery(number).toList();
 	}
 
 	/**
@@ -69,22 +164,23 @@ public class PaginationResult<T extends BaseEntity> {
 	 * @see #getPage(int)
 	 */
 	public CompletableFuture<Void> getPageAsync(int number, Consumer<? super List<T>> callback) {
-		return CompletableFuture.supplyAsync(() -> getPage(number)).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(() -> getPage(number)).thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	/**
 	 * Retrieves a specific page represented by a {@link Stream}. Only then will a query to the database be executed.
+	 * The stream holds on to its database connection until it is exhausted or closed.
 	 *
 	 * @param number The number of the page. The first page has the number 1.
 	 * @return A {@link Stream} of entities on this page.
 	 */
 	public Stream<T> getPageAsStream(int number) {
-		pageNumberCheck(number);
-		return queries.get(number - 1).orderBy(this.orderType, this.orderFunctions).toStream();
+		return createPageQuery(number).toStream();
 	}
 
 	/**
 	 * The asynchronous version of the {@link #getPageAsStream(int)} method.
+	 * The stream is closed once the callback returns, so it can only be used within the callback.
 	 *
 	 * @param number   The number of the page. The first page has the number 1.
 	 * @param callback The callback to be executed once the page has been fetched.
@@ -92,7 +188,11 @@ public class PaginationResult<T extends BaseEntity> {
 	 * @see #getPageAsStream(int)
 	 */
 	public CompletableFuture<Void> getPageAsStreamAsync(int number, Consumer<? super Stream<T>> callback) {
-		return CompletableFuture.supplyAsync(() -> getPageAsStream(number)).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(() -> getPageAsStream(number)).thenAcceptAsync(stream -> {
+			try (stream) {
+				callback.accept(stream);
+			}
+		}, AsyncExecutor.getExecutor());
 	}
 
 	/**
@@ -102,8 +202,7 @@ public class PaginationResult<T extends BaseEntity> {
 	 * @return An array of entities on this page.
 	 */
 	public T[] getPageAsArray(int number) {
-		pageNumberCheck(number);
-		return queries.get(number - 1).orderBy(this.orderType, this.orderFunctions).toArray();
+		return createPageQuery(number).toArray();
 	}
 
 	/**
@@ -115,7 +214,164 @@ public class PaginationResult<T extends BaseEntity> {
 	 * @see #getPageAsArray(int)
 	 */
 	public CompletableFuture<Void> getPageAsArrayAsync(int number, Consumer<? super T[]> callback) {
-		return CompletableFuture.supplyAsync(() -> getPageAsArray(number)).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(() -> getPageAsArray(number)).thenAcceptAsync(callback, AsyncExecutor.getExecutor());
+	}
+
+	/**
+	 * Retrieves the first page of a keyset pagination.
+	 *
+	 * @return The first page, along with the token for the next page.
+	 */
+	public KeysetPage<T> getFirstKeysetPage() {
+		return getKeysetPage(null, true);
+	}
+
+	/**
+	 * Retrieves the last page of a keyset pagination.
+	 *
+	 * @return The last page, along with the token for the previous page.
+	 */
+	public KeysetPage<T> getLastKeysetPage() {
+		return getKeysetPage(null, false);
+	}
+
+	/**
+	 * Retrieves the page which follows the page a token was created for.
+	 *
+	 * @param token The token for the next page, as returned by {@link KeysetPage#getNextToken()}.
+	 * @return The page after the token.
+	 * @throws IllegalArgumentException if the token is malformed.
+	 */
+	public KeysetPage<T> getPageAfter(String token) {
+		return getKeysetPage(KeysetCursor.fromToken(token), true);
+	}
+
+	/**
+	 * Retrieves the page which precedes the page a token was created for.
+	 *
+	 * @param token The token for the previous page, as returned by {@link KeysetPage#getPreviousToken()}.
+	 * @return The page before the token.
+	 * @throws IllegalArgumentException if the token is malformed.
+	 */
+	public KeysetPage<T> getPageBefore(String token) {
+		return getKeysetPage(KeysetCursor.fromToken(token), false);
+	}
+
+	/**
+	 * Retrieves a page of a keyset pagination. The pagination is ordered by the order functions, if there are any, and then by the id,
+	 * so every entity has a unique position. A page is found by seeking past the position of the cursor in the requested direction.
+	 *
+	 * @param cursor  The position to start from, or {@code null} to start at the beginning or the end.
+	 * @param forward {@code True} to get the entities after the cursor, {@code false} to get the ones before it.
+	 * @return The requested page.
+	 */
+	private KeysetPage<T> getKeysetPage(KeysetCursor cursor, boolean forward) {
+		var query = querySupplier.get();
+		var tableName = query.getTableName();
+		var idColumn = String.format("`%s`.`id`", tableName);
+		var key = createKeyExpression(tableName);
+
+		// Going backwards means reading the order in reverse and then flipping the result.
+		var ascending = (this.orderType != OrderTypes.DESCENDING) == forward;
+		var direction = ascending ? OrderTypes.ASCENDING.getSql() : OrderTypes.DESCENDING.getSql();
+		var comparison = ascending ? ">" : "<";
+		if (cursor != null) {
+			if (key == null) {
+				query.where(new SqlFragment(String.format("%s %s ?", idColumn, comparison), cursor.getId()));
+			} else {
+				if (cursor.getKey() == null) {
+					throw new IllegalArgumentException("The keyset pagination token does not contain a value for the ordering key.");
+				}
+
+				var parameters = new ArrayList<>(Arrays.asList(key.getParameters()));
+				parameters.add(cursor.getKey());
+				parameters.addAll(Arrays.asList(key.getParameters()));
+				parameters.add(cursor.getKey());
+				parameters.add(cursor.getId());
+				var sql = String.format("%1$s %2$s ? or (%1$s = ? and %3$s %2$s ?)", key.getSql(), comparison, idColumn);
+				query.where(new SqlFragment(sql, parameters.toArray()));
+			}
+		}
+
+		if (key == null) {
+			query.orderBy(new SqlFragment(String.format("%s %s", idColumn, direction)));
+		} else {
+			query.orderBy(new SqlFragment(String.format("%s %s, %s %s", key.getSql(), direction, idColumn, direction), key.getParameters()));
+		}
+
+		var entities = new ArrayList<>(query.limit(this.entriesPerPage + 1).toList());
+		var hasMore = entities.size() > this.entriesPerPage;
+		if (hasMore) {
+			entities.remove(entities.size() - 1);
+		}
+
+		if (!forward) {
+			Collections.reverse(entities);
+		}
+
+		var hasPrevious = forward ? cursor != null : hasMore;
+		var hasNext = forward ? hasMore : cursor != null;
+		if (entities.isEmpty()) {
+			return new KeysetPage<>(entities, null, null);
+		}
+
+		var previousToken = hasPrevious ? createCursor(entities.get(0), key != null).toToken() : null;
+		var nextToken = hasNext ? createCursor(entities.get(entities.size() - 1), key != null).toToken() : null;
+		return new KeysetPage<>(entities, previousToken, nextToken);
+	}
+
+	/**
+	 * Creates the SQL expression of the key this pagination is ordered by, not including the id.
+	 * Like for regular queries, multiple order functions are coalesced.
+	 *
+	 * @param tableName The table the pagination selects from.
+	 * @return The key expression, or {@code null} if the pagination is only ordered by the id.
+	 */
+	private SqlFragment createKeyExpression(String tableName) {
+		if (this.orderFunctions == null || this.orderFunctions.length == 0) {
+			return null;
+		}
+
+		if (this.orderFunctions.length == 1) {
+			return lambdaModule.toSql(this.orderFunctions[0], tableName);
+		}
+
+		var joiner = new StringJoiner(", ", "coalesce(", ")");
+		var parameters = new ArrayList<>();
+		for (var orderFunction : this.orderFunctions) {
+			var fragment = lambdaModule.toSql(orderFunction, tableName);
+			joiner.add(fragment.getSql());
+			parameters.addAll(Arrays.asList(fragment.getParameters()));
+		}
+
+		return new SqlFragment(joiner.toString(), parameters.toArray());
+	}
+
+	/**
+	 * Creates a cursor pointing at the position of an entity.
+	 *
+	 * @param entity The entity to create the cursor for.
+	 * @param hasKey If the pagination is ordered by a key besides the id.
+	 * @return The cursor of the entity.
+	 */
+	private KeysetCursor createCursor(T entity, boolean hasKey) {
+		if (!hasKey) {
+			return new KeysetCursor(null, entity.getId());
+		}
+
+		Object key = null;
+		for (var orderFunction : this.orderFunctions) {
+			key = orderFunction.apply(entity);
+			if (key != null) {
+				break;
+			}
+		}
+
+		if (key == null) {
+			throw new IllegalStateException(String.format("Keyset pagination requires the ordering key to not be null, but it is for the entity with id %d.", entity.getId()));
+		}
+
+		return new KeysetCursor(key, entity.getId());
 	}
 
 	/**
@@ -0,0 +1,134 @@
+package com.github.collinalpert.java2db.queries;
+
+import com.github.collinalpert.java2db.database.DBConnection;
+import com.github.collinalpert.java2db.database.EntityMetadata;
+import com.github.collinalpert.java2db.database.ForeignKeyMetadata;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+import com.github.collinalpert.java2db.mappers.BaseMapper;
+import com.github.collinalpert.java2db.utilities.IoC;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Loads a foreign key entity which uses the {@link FetchStrategy#BATCH} strategy for the entities of a query result.
+ * Instead of joining the table of the foreign key entity, the distinct foreign keys of all entities are read in
+ * {@code where id in (...)} queries, and every entity referencing the same row receives the same instance.
+ * Instances are immutable and are created once per {@link SelectPlan}.
+ *
+ * @author Collin Alpert
+ */
+final class BatchFetch {
+
+	/**
+	 * The foreign key fields leading from the queried entity to the entity holding the foreign key. It is empty if the queried entity holds it.
+	 */
+	private final List<ForeignKeyMetadata> ownerPath;
+	private final ForeignKeyMetadata foreignKey;
+
+	/**
+	 * The plan for querying the foreign key entity, which contains the parts of the plan of the query below the foreign key entity.
+	 */
+	private final FetchPlan<? extends BaseEntity> fetchPlan;
+
+	BatchFetch(List<ForeignKeyMetadata> ownerPath, ForeignKeyMetadata foreignKey, FetchPlan<? extends BaseEntity> fetchPlan) {
+		this.ownerPath = Collections.unmodifiableList(new ArrayList<>(ownerPath));
+		this.foreignKey = foreignKey;
+		this.fetchPlan = fetchPlan;
+	}
+
+	/**
+	 * Loads the foreign key entity for a query result and sets it in the entities holding the foreign key.
+	 * The queries are executed on the connection of the query result, so loading does not need another connection from the pool.
+	 *
+	 * @param entities   The entities of the query result.
+	 * @param connection The connection the query result was read with.
+	 * @throws SQLException if the foreign key entities cannot be read.
+	 */
+	void load(List<? extends BaseEntity> entities, DBConnection connection) throws SQLException {
+		var owners = findOwners(entities);
+		var foreignKeyColumn = this.foreignKey.getForeignKeyColumn();
+		var ids = new LinkedHashSet<Long>();
+		for (var owner : owners) {
+			var id = foreignKeyColumn.getValue(owner);
+			if (id != null) {
+				ids.add(((Number) id).longValue());
+			}
+		}
+
+		if (ids.isEmpty()) {
+			return;
+		}
+
+		var loadedEntities = query(this.fetchPlan, new ArrayList<>(ids), connection);
+		for (var owner : owners) {
+			var id = foreignKeyColumn.getValue(owner);
+			if (id != null) {
+				this.foreignKey.setValue(owner, loadedEntities.get(((Number) id).longValue()));
+			}
+		}
+	}
+
+	/**
+	 * Follows the owner path from the entities of the query result to the distinct entities holding the foreign key.
+	 *
+	 * @param entities The entities of the query result.
+	 * @return The entities holding the foreign key.
+	 */
+	private List<Object> findOwners(List<? extends BaseEntity> entities) {
+		List<Object> owners = new ArrayList<>(entities);
+		for (var step : this.ownerPath) {
+			var nextOwners = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (var owner : owners) {
+				var next = step.getValue(owner);
+				if (next != null) {
+					nextOwners.add(next);
+				}
+			}
+
+			owners = new ArrayList<>(nextOwners);
+		}
+
+		return owners;
+	}
+
+	/**
+	 * Reads the foreign key entities with the given ids, in chunks of {@link DBConnection#FETCH_BATCH_SIZE} ids per query.
+	 * Like joined foreign key entities, they are read regardless of the {@link QueryConstraints} of their type.
+	 *
+	 * @param fetchPlan  The plan for querying the foreign key entities.
+	 * @param ids        The ids of the foreign key entities.
+	 * @param connection The connection to execute the queries on.
+	 * @param <R>        The type of the foreign key entities.
+	 * @return The foreign key entities by their id.
+	 * @throws SQLException if the foreign key entities cannot be read.
+	 */
+	private static <R extends BaseEntity> Map<Long, R> query(FetchPlan<R> fetchPlan, List<Long> ids, DBConnection connection) throws SQLException {
+		var type = fetchPlan.getType();
+		var mapper = IoC.resolveMapper(type, new BaseMapper<>(type));
+		var tableName = EntityMetadata.of(type).getTableName();
+		var chunkSize = Math.max(1, DBConnection.FETCH_BATCH_SIZE);
+		var entities = new HashMap<Long, R>(ids.size() * 4 / 3 + 1);
+		for (int i = 0; i < ids.size(); i += chunkSize) {
+			var chunk = ids.subList(i, Math.min(i + chunkSize, ids.size()));
+			var placeholders = new StringJoiner(", ", "(", ")");
+			for (int j = 0; j < chunk.size(); j++) {
+				placeholders.add("?");
+			}
+
+			var condition = new SqlFragment(String.format("`%s`.`id` in %s", tableName, placeholders), chunk.toArray());
+			for (var entity : new EntityQuery<>(type, mapper).fetch(fetchPlan).withoutConstraints().where(condition).toList(connection)) {
+				entities.put(entity.getId(), entity);
+			}
+		}
+
+		return entities;
+	}
+}
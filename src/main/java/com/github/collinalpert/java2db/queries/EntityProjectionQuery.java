@@ -3,17 +3,22 @@ package com.github.collinalpert.java2db.queries;
 import com.github.collinalpert.java2db.database.DBConnection;
 import com.github.collinalpert.java2db.entities.BaseEntity;
 import com.github.collinalpert.java2db.modules.ArrayModule;
-import com.github.collinalpert.lambda2sql.Lambda2Sql;
+import com.github.collinalpert.java2db.modules.LambdaModule;
+import com.github.collinalpert.java2db.modules.QueryCacheModule;
+import com.github.collinalpert.java2db.utilities.Utilities;
 import com.github.collinalpert.lambda2sql.functions.SqlFunction;
 
 import java.lang.reflect.Array;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -23,9 +28,19 @@ import java.util.stream.Stream;
  */
 public class EntityProjectionQuery<E extends BaseEntity, R> implements Queryable<R> {
 
+	private static final LambdaModule lambdaModule;
+	private static final QueryCacheModule queryCacheModule;
+
+	static {
+		lambdaModule = new LambdaModule();
+		queryCacheModule = new QueryCacheModule();
+	}
+
 	private final Class<R> returnType;
 	private final SqlFunction<E, R> projection;
 	private final EntityQuery<E> originalQuery;
+	private Duration cacheExpiration;
+	private Duration cacheStaleWindow;
 
 	public EntityProjectionQuery(Class<R> returnType, SqlFunction<E, R> projection, EntityQuery<E> originalQuery) {
 		this.returnType = returnType;
@@ -33,10 +48,31 @@ public class EntityProjectionQuery<E extends BaseEntity, R> implements Queryable
 		this.originalQuery = originalQuery;
 	}
 
+	@Override
+	public EntityProjectionQuery<E, R> cached(Duration expiration) {
+		return cached(expiration, Duration.ZERO);
+	}
+
+	@Override
+	public EntityProjectionQuery<E, R> cached(Duration expiration, Duration staleWindow) {
+		this.cacheExpiration = expiration;
+		this.cacheStaleWindow = staleWindow;
+		return this;
+	}
+
 	@Override
 	public Optional<R> getFirst() {
+		if (this.cacheExpiration != null) {
+			return getCached("first", this::fetchFirst);
+		}
+
+		return fetchFirst();
+	}
+
+	private Optional<R> fetchFirst() {
+		var query = getQuery();
 		try (var connection = new DBConnection();
-			 var result = connection.execute(getQuery())) {
+			 var result = connection.execute(query.getSql(), query.getParameters())) {
 
 			if (result.next()) {
 				return Optional.ofNullable(result.getObject(1, this.returnType));
@@ -51,27 +87,78 @@ public class EntityProjectionQuery<E extends BaseEntity, R> implements Queryable
 
 	@Override
 	public List<R> toList() {
+		if (this.cacheExpiration != null) {
+			return new ArrayList<>(getCachedList());
+		}
+
+		return fetchList();
+	}
+
+	private List<R> fetchList() {
 		var list = new ArrayList<R>();
 		return resultHandling(list, List::add, Collections.emptyList(), Function.identity());
 	}
 
+	/**
+	 * Executes the query and returns the result as a {@link Stream}.
+	 * The values are read from the database while the stream is consumed and the database connection is held until the stream is exhausted or closed.
+	 *
+	 * @return A stream of the projected values.
+	 */
 	@Override
 	public Stream<R> toStream() {
-		var streamBuilder = Stream.<R>builder();
-		return resultHandling(streamBuilder, Stream.Builder::accept, Stream.empty(), Stream.Builder::build);
+		if (this.cacheExpiration != null) {
+			return getCachedList().stream();
+		}
+
+		var query = getQuery();
+		var connection = new DBConnection();
+		try {
+			var result = connection.executeStreaming(query.getSql(), query.getParameters());
+			var stream = Utilities.stream(result, () -> result.getObject(1, this.returnType));
+			return Utilities.onCompletion(stream, connection::close);
+		} catch (SQLException e) {
+			connection.close();
+			e.printStackTrace();
+			return Stream.empty();
+		}
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public R[] toArray() {
+		if (this.cacheExpiration != null) {
+			var list = getCachedList();
+			return list.toArray((R[]) Array.newInstance(this.returnType, list.size()));
+		}
+
 		var arrayModule = new ArrayModule<>(this.returnType, 20);
-		@SuppressWarnings("unchecked")
 		var defaultValue = (R[]) Array.newInstance(this.returnType, 0);
 		return resultHandling(arrayModule, ArrayModule::addElement, defaultValue, ArrayModule::getArray);
 	}
 
+	private List<R> getCachedList() {
+		return getCached("list", () -> Collections.unmodifiableList(fetchList()));
+	}
+
+	/**
+	 * Gets the result of this query from the query cache, using the statement and its parameters as the key.
+	 *
+	 * @param kind  The kind of result, since different kinds of results of the same query are cached separately.
+	 * @param query Executes the query.
+	 * @param <T>   The type of the result.
+	 * @return The cached result.
+	 */
+	private <T> T getCached(String kind, Supplier<T> query) {
+		var statement = getQuery();
+		var key = kind + ":" + statement.toCacheKey();
+		return queryCacheModule.getOrAdd(key, List.of(originalQuery.getTableName()), query, this.cacheExpiration, this.cacheStaleWindow);
+	}
+
 	private <T, D> T resultHandling(D dataType, BiConsumer<D, R> valueConsumer, T defaultValue, Function<D, T> valueMapping) {
+		var query = getQuery();
 		try (var connection = new DBConnection();
-			 var result = connection.execute(getQuery())) {
+			 var result = connection.execute(query.getSql(), query.getParameters())) {
 			while (result.next()) {
 				valueConsumer.accept(dataType, result.getObject(1, this.returnType));
 			}
@@ -84,15 +171,18 @@ public class EntityProjectionQuery<E extends BaseEntity, R> implements Queryable
 	}
 
 	@Override
-	public String getQuery() {
+	public SqlFragment getQuery() {
 		var builder = new StringBuilder("select ");
 
 		var tableName = originalQuery.getTableName();
-		var columnName = Lambda2Sql.toSql(projection, tableName);
-		builder.append(columnName).append(" from `").append(tableName).append("`");
+		var column = lambdaModule.toSql(projection, tableName);
+		builder.append(column.getSql()).append(" from `").append(tableName).append("`");
 
-		builder.append(originalQuery.generateQueryClauses(tableName));
+		var clauses = originalQuery.generateQueryClauses(tableName);
+		builder.append(clauses.getSql());
 
-		return builder.toString();
+		var parameters = new ArrayList<>(Arrays.asList(column.getParameters()));
+		parameters.addAll(Arrays.asList(clauses.getParameters()));
+		return new SqlFragment(builder.toString(), parameters.toArray());
 	}
 }
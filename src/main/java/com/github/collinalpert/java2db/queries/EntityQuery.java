@@ -1,47 +1,72 @@
 package com.github.collinalpert.java2db.queries;
 
 import com.github.collinalpert.java2db.annotations.ForeignKeyEntity;
+import com.github.collinalpert.java2db.database.ColumnMetadata;
 import com.github.collinalpert.java2db.database.DBConnection;
-import com.github.collinalpert.java2db.database.ForeignKeyReference;
+import com.github.collinalpert.java2db.database.EntityMetadata;
 import com.github.collinalpert.java2db.entities.BaseEntity;
 import com.github.collinalpert.java2db.mappers.Mappable;
-import com.github.collinalpert.java2db.modules.FieldModule;
+import com.github.collinalpert.java2db.mappers.MappingPlan;
+import com.github.collinalpert.java2db.modules.LambdaModule;
+import com.github.collinalpert.java2db.modules.QueryCacheModule;
 import com.github.collinalpert.java2db.modules.TableModule;
-import com.github.collinalpert.lambda2sql.Lambda2Sql;
+import com.github.collinalpert.java2db.utilities.Utilities;
 import com.github.collinalpert.lambda2sql.functions.SqlFunction;
 import com.github.collinalpert.lambda2sql.functions.SqlPredicate;
 import com.trigersoft.jaque.expression.LambdaExpression;
 
 import java.lang.reflect.Array;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.StringJoiner;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A class representing a DQL statement with different options, including where clauses, order by clauses and limits.
  * It also automatically joins foreign keys so the corresponding entities (marked with the {@link ForeignKeyEntity} attribute) can be filled.
+ * Which foreign keys are joined can be controlled using a {@link FetchPlan}.
  *
  * @author Collin Alpert
  */
 public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 
 	private static final TableModule tableModule;
+	private static final LambdaModule lambdaModule;
+	private static final QueryCacheModule queryCacheModule;
 
 	static {
 		tableModule = new TableModule();
+		lambdaModule = new LambdaModule();
+		queryCacheModule = new QueryCacheModule();
 	}
 
 	private final Class<E> type;
 	private final Mappable<E> mapper;
+	private final List<SqlFragment> sqlConditions;
 	private SqlPredicate<E> whereClause;
 	private SqlFunction<E, ?>[] orderByClause;
 	private OrderTypes orderType;
+	private SqlFragment sqlOrderByClause;
 	private Integer limit;
 	private int limitOffset;
+	private Duration cacheExpiration;
+	private Duration cacheStaleWindow;
+	private FetchPlan<E> fetchPlan;
+	private boolean applyConstraints;
+	private Set<ColumnMetadata> selectedColumns;
 
 	/**
 	 * Constructor for creating a DQL statement for a given entity.
@@ -53,6 +78,10 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 	public EntityQuery(Class<E> type, Mappable<E> mapper) {
 		this.type = type;
 		this.mapper = mapper;
+		this.sqlConditions = new ArrayList<>();
+		this.fetchPlan = FetchPlan.of(type);
+		this.applyConstraints = true;
+		this.selectedColumns = Set.of();
 	}
 
 	//region Configuration
@@ -79,6 +108,19 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 		return this;
 	}
 
+	/**
+	 * Appends a condition which is written in SQL to the WHERE clause. It is combined with the other conditions using AND.
+	 * This is meant for conditions which cannot be expressed with a lambda, like the ones used by keyset pagination.
+	 * The SQL is used as is, so values must only be passed as parameters of the fragment.
+	 *
+	 * @param condition The condition in SQL, with placeholders for its parameters.
+	 * @return This {@link EntityQuery} object, now with an appended WHERE clause.
+	 */
+	public EntityQuery<E> where(SqlFragment condition) {
+		this.sqlConditions.add(condition);
+		return this;
+	}
+
 	/**
 	 * Sets multiple ORDER BY clauses for the DQL statement. The resulting ORDER BY statement will coalesce the passed columns, if more than one is supplied.
 	 *
@@ -101,6 +143,20 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 	public final EntityQuery<E> orderBy(OrderTypes type, SqlFunction<E, ?>... functions) {
 		this.orderByClause = functions;
 		this.orderType = type;
+		this.sqlOrderByClause = null;
+		return this;
+	}
+
+	/**
+	 * Sets an ORDER BY clause which is written in SQL, for example to order by multiple columns with different directions.
+	 * It replaces ORDER BY clauses set with lambdas. The SQL is used as is, so values must only be passed as parameters of the fragment.
+	 *
+	 * @param orderBy The expressions to order by in SQL, without the ORDER BY keyword.
+	 * @return This {@link EntityQuery} object, now with an ORDER BY clause.
+	 */
+	public EntityQuery<E> orderBy(SqlFragment orderBy) {
+		this.sqlOrderByClause = orderBy;
+		this.orderByClause = null;
 		return this;
 	}
 
@@ -129,6 +185,176 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 		return this;
 	}
 
+	/**
+	 * Caches the result of this query. Executing the same query again returns the cached result until it expires
+	 * or one of the tables it was read from is changed through a service.
+	 *
+	 * @param expiration The duration the result is cached for.
+	 * @return This {@link EntityQuery} object, now with caching enabled.
+	 */
+	@Override
+	public EntityQuery<E> cached(Duration expiration) {
+		return cached(expiration, Duration.ZERO);
+	}
+
+	/**
+	 * Caches the result of this query. Executing the same query again returns the cached result until it expires
+	 * or one of the tables it was read from is changed through a service.
+	 * After the result has expired, it is still returned for the duration of the {@code staleWindow}, while a new result is loaded in the background.
+	 * Every execution returns copies of the cached entities, so they can be changed without affecting the cache.
+	 *
+	 * @param expiration  The duration the result is cached for.
+	 * @param staleWindow The duration after the expiration during which the expired result is still returned while it is reloaded.
+	 * @return This {@link EntityQuery} object, now with caching enabled.
+	 */
+	@Override
+	public EntityQuery<E> cached(Duration expiration, Duration staleWindow) {
+		this.cacheExpiration = expiration;
+		this.cacheStaleWindow = staleWindow;
+		return this;
+	}
+
+	/**
+	 * Only selects some of the columns of the entity, which is meant for wide tables when only a few columns are needed.
+	 * The id is always selected, while the fields of the other columns keep their default values.
+	 * Foreign key entities are only loaded if their foreign key column is selected.
+	 * <p>
+	 * Updating such a partial entity only writes the columns which were selected. If a column which was not selected is changed,
+	 * the update is rejected, since the change would overwrite a value which is unknown.
+	 *
+	 * @param columns The columns to select, for example {@code Person::getName}.
+	 * @return This {@link EntityQuery} object, now only selecting the given columns.
+	 * @throws IllegalArgumentException if no column is passed or a function does not return a column of the entity.
+	 */
+	@SafeVarargs
+	public final EntityQuery<E> select(SqlFunction<E, ?>... columns) {
+		if (columns.length == 0) {
+			throw new IllegalArgumentException("At least one column has to be selected.");
+		}
+
+		var metadata = EntityMetadata.of(this.type);
+		var selectedColumns = new HashSet<ColumnMetadata>();
+		for (var column : columns) {
+			selectedColumns.add(lambdaModule.toColumn(column, metadata));
+		}
+
+		this.selectedColumns = Set.copyOf(selectedColumns);
+		return this;
+	}
+
+	/**
+	 * Sets the plan which decides which foreign key entities are joined, replacing the current one.
+	 *
+	 * @param fetchPlan The plan to use for this query.
+	 * @return This {@link EntityQuery} object, now with the fetch plan.
+	 */
+	public EntityQuery<E> fetch(FetchPlan<E> fetchPlan) {
+		if (fetchPlan == null) {
+			throw new IllegalArgumentException("The fetch plan of a query cannot be null.");
+		}
+
+		this.fetchPlan = fetchPlan;
+		return this;
+	}
+
+	/**
+	 * Only joins the included foreign key entities, while the others are left {@code null}.
+	 *
+	 * @param foreignKey The getter of a foreign key entity, for example {@code Person::getAddress}.
+	 * @return This {@link EntityQuery} object, now also joining this foreign key entity.
+	 * @see FetchPlan#include(SqlFunction)
+	 */
+	public EntityQuery<E> include(SqlFunction<E, ?> foreignKey) {
+		this.fetchPlan = this.fetchPlan.include(foreignKey);
+		return this;
+	}
+
+	/**
+	 * Only joins the included foreign key entities, while the others are left {@code null}.
+	 *
+	 * @param path The path of a foreign key entity, for example {@code address.country}.
+	 * @return This {@link EntityQuery} object, now also joining this foreign key entity.
+	 * @see FetchPlan#include(String)
+	 */
+	public EntityQuery<E> include(String path) {
+		this.fetchPlan = this.fetchPlan.include(path);
+		return this;
+	}
+
+	/**
+	 * Does not join a foreign key entity, which is then left {@code null}.
+	 *
+	 * @param foreignKey The getter of a foreign key entity, for example {@code Person::getAddress}.
+	 * @return This {@link EntityQuery} object, now without joining this foreign key entity.
+	 * @see FetchPlan#exclude(SqlFunction)
+	 */
+	public EntityQuery<E> exclude(SqlFunction<E, ?> foreignKey) {
+		this.fetchPlan = this.fetchPlan.exclude(foreignKey);
+		return this;
+	}
+
+	/**
+	 * Does not join a foreign key entity, which is then left {@code null}.
+	 *
+	 * @param path The path of a foreign key entity, for example {@code address.country}.
+	 * @return This {@link EntityQuery} object, now without joining this foreign key entity.
+	 * @see FetchPlan#exclude(String)
+	 */
+	public EntityQuery<E> exclude(String path) {
+		this.fetchPlan = this.fetchPlan.exclude(path);
+		return this;
+	}
+
+	/**
+	 * Loads a foreign key entity using a different strategy than the one specified in its {@link ForeignKeyEntity} annotation.
+	 * For example, {@link FetchStrategy#BATCH} reads the distinct foreign keys of all rows in separate queries instead of joining them.
+	 *
+	 * @param foreignKey The getter of a foreign key entity, for example {@code Person::getAddress}.
+	 * @param strategy   The way to load the foreign key entity.
+	 * @return This {@link EntityQuery} object, now loading this foreign key entity using the strategy.
+	 * @see FetchPlan#fetch(SqlFunction, FetchStrategy)
+	 */
+	public EntityQuery<E> fetch(SqlFunction<E, ?> foreignKey, FetchStrategy strategy) {
+		this.fetchPlan = this.fetchPlan.fetch(foreignKey, strategy);
+		return this;
+	}
+
+	/**
+	 * Loads a foreign key entity using a different strategy than the one specified in its {@link ForeignKeyEntity} annotation.
+	 *
+	 * @param path     The path of a foreign key entity, for example {@code address.country}.
+	 * @param strategy The way to load the foreign key entity.
+	 * @return This {@link EntityQuery} object, now loading this foreign key entity using the strategy.
+	 * @see FetchPlan#fetch(String, FetchStrategy)
+	 */
+	public EntityQuery<E> fetch(String path, FetchStrategy strategy) {
+		this.fetchPlan = this.fetchPlan.fetch(path, strategy);
+		return this;
+	}
+
+	/**
+	 * Limits how deep foreign key entities are joined. Entities below this depth are left {@code null}.
+	 *
+	 * @param maxDepth The maximum depth of joined foreign key entities, where 1 only joins the foreign key entities of the queried entity.
+	 * @return This {@link EntityQuery} object, now with a maximum depth for joins.
+	 * @see FetchPlan#maxDepth(int)
+	 */
+	public EntityQuery<E> maxDepth(int maxDepth) {
+		this.fetchPlan = this.fetchPlan.maxDepth(maxDepth);
+		return this;
+	}
+
+	/**
+	 * Does not apply the {@link QueryConstraints} of the entity. This is used for loading foreign key entities in batches,
+	 * since joined foreign key entities are not restricted by them either.
+	 *
+	 * @return This {@link EntityQuery} object, now without the constraints of the entity.
+	 */
+	EntityQuery<E> withoutConstraints() {
+		this.applyConstraints = false;
+		return this;
+	}
+
 	/**
 	 * Selects only a single column from a table. This is meant if you don't want to fetch an entire entity from the database.
 	 *
@@ -140,7 +366,12 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 		var lambda = LambdaExpression.parse(projection);
 		@SuppressWarnings("unchecked")
 		var returnType = (Class<R>) lambda.getBody().getResultType();
-		return new EntityProjectionQuery<>(returnType, projection, this);
+		var projectionQuery = new EntityProjectionQuery<>(returnType, projection, this);
+		if (this.cacheExpiration != null) {
+			projectionQuery.cached(this.cacheExpiration, this.cacheStaleWindow);
+		}
+
+		return projectionQuery;
 	}
 
 	//endregion
@@ -153,8 +384,23 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 	 */
 	@Override
 	public Optional<E> getFirst() {
+		if (this.cacheExpiration != null) {
+			var metadata = EntityMetadata.of(this.type);
+			return this.<Optional<E>>getCached("first", () -> fetchFirst().map(metadata::copy)).map(metadata::copy);
+		}
+
+		return fetchFirst();
+	}
+
+	private Optional<E> fetchFirst() {
 		try (var connection = new DBConnection()) {
-			return this.mapper.map(connection.execute(getQuery()));
+			var query = createPlannedQuery();
+			var entity = this.mapper.map(query.execute(connection), query.getMappingPlan());
+			if (entity.isPresent()) {
+				query.loadBatches(List.of(entity.get()), connection);
+			}
+
+			return entity;
 		} catch (SQLException e) {
 			e.printStackTrace();
 			return Optional.empty();
@@ -168,8 +414,16 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 	 */
 	@Override
 	public List<E> toList() {
+		if (this.cacheExpiration != null) {
+			return copyCachedList();
+		}
+
+		return fetchList();
+	}
+
+	private List<E> fetchList() {
 		try (var connection = new DBConnection()) {
-			return this.mapper.mapToList(connection.execute(getQuery()));
+			return toList(connection);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			return Collections.emptyList();
@@ -177,15 +431,42 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 	}
 
 	/**
-	 * Executes the query and returns the result as a {@link Stream}
+	 * Executes the query on a connection which is already open, without considering the query cache.
+	 * This is used for loading foreign key entities in batches on the connection of the query which needs them,
+	 * so a query never waits for a second connection from the pool while holding one.
 	 *
+	 * @param connection The connection to execute the query and its batches on.
 	 * @return A list of entities representing the result rows.
+	 * @throws SQLException if the query cannot be executed.
+	 */
+	List<E> toList(DBConnection connection) throws SQLException {
+		var query = createPlannedQuery();
+		var entities = this.mapper.mapToList(query.execute(connection), query.getMappingPlan());
+		query.loadBatches(entities, connection);
+		return entities;
+	}
+
+	/**
+	 * Executes the query and returns the result as a {@link Stream}.
+	 * The rows are read from the database while the stream is consumed, so only a portion of them is held in memory at a time.
+	 * The stream holds on to its database connection until it is exhausted or closed.
+	 * It should therefore either be consumed entirely or be used in a try-with-resources statement.
+	 *
+	 * @return A stream of entities representing the result rows.
 	 */
 	@Override
 	public Stream<E> toStream() {
-		try (var connection = new DBConnection()) {
-			return this.mapper.mapToStream(connection.execute(getQuery()));
+		if (this.cacheExpiration != null) {
+			return copyCachedList().stream();
+		}
+
+		var connection = new DBConnection();
+		try {
+			var query = createPlannedQuery();
+			var stream = this.mapper.mapToStream(query.executeStreaming(connection), query.getMappingPlan());
+			return Utilities.onCompletion(loadBatches(stream, query, connection), connection::close);
 		} catch (SQLException e) {
+			connection.close();
 			e.printStackTrace();
 			return Stream.empty();
 		}
@@ -199,8 +480,16 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public E[] toArray() {
+		if (this.cacheExpiration != null) {
+			var list = copyCachedList();
+			return list.toArray((E[]) Array.newInstance(this.type, list.size()));
+		}
+
 		try (var connection = new DBConnection()) {
-			return this.mapper.mapToArray(connection.execute(getQuery()));
+			var query = createPlannedQuery();
+			var entities = this.mapper.mapToArray(query.execute(connection), query.getMappingPlan());
+			query.loadBatches(Arrays.asList(entities), connection);
+			return entities;
 		} catch (SQLException e) {
 			e.printStackTrace();
 			return (E[]) Array.newInstance(this.type, 0);
@@ -208,68 +497,132 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 	}
 
 	/**
-	 * Builds the query from the set query options.
+	 * Loads the foreign key entities which are loaded in batches for a stream of entities. Since the stream is not read at once,
+	 * its entities are loaded in chunks of {@link DBConnection#FETCH_BATCH_SIZE} while it is consumed.
+	 * Since the stream reads its rows through a cursor on the server, the batches are read on the same connection.
 	 *
-	 * @return The DQL statement for getting data from the database.
+	 * @param stream     The stream of the query result.
+	 * @param query      The query the stream is read from.
+	 * @param connection The connection the stream is read with.
+	 * @return A stream of the same entities, in which the foreign key entities are set.
 	 */
-	@Override
-	public String getQuery() {
-		var builder = new StringBuilder("select ");
-		var fieldList = new LinkedList<String>();
-		var foreignKeyList = new LinkedList<ForeignKeyReference>();
-		var tableName = tableModule.getTableName(this.type);
-		var fieldModule = new FieldModule();
-		var columns = fieldModule.getAllFields(this.type);
-		for (var column : columns) {
-			if (column.isForeignKey()) {
-				foreignKeyList.add(new ForeignKeyReference(
-						column.getReference(),
-						column.getColumn().getAnnotation(ForeignKeyEntity.class).value(),
-						tableModule.getTableName(column.getColumn().getType()),
-						column.getAlias()));
-				continue;
+	private Stream<E> loadBatches(Stream<E> stream, PlannedQuery query, DBConnection connection) {
+		if (!query.hasBatches()) {
+			return stream;
+		}
+
+		var iterator = stream.iterator();
+		var chunkSize = Math.max(1, DBConnection.FETCH_BATCH_SIZE);
+		var chunks = new Iterator<List<E>>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
 			}
 
-			fieldList.add(String.format("%s as %s", column.getSQLNotation(), column.getAliasNotation()));
-		}
+			@Override
+			public List<E> next() {
+				var chunk = new ArrayList<E>(chunkSize);
+				while (chunk.size() < chunkSize && iterator.hasNext()) {
+					chunk.add(iterator.next());
+				}
+
+				try {
+					query.loadBatches(chunk, connection);
+				} catch (SQLException e) {
+					e.printStackTrace();
+					throw new IllegalStateException("Could not load the foreign key entities of the streamed entities.", e);
+				}
+
+				return chunk;
+			}
+		};
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false).flatMap(List::stream).onClose(stream::close);
+	}
+
+	/**
+	 * Gets copies of the cached result of this query, executing it if it is not cached.
+	 *
+	 * @return The result rows as a list of entities which can be changed without affecting the cache.
+	 */
+	private List<E> copyCachedList() {
+		var metadata = EntityMetadata.of(this.type);
+		var cachedList = this.<List<E>>getCached("list", () -> {
+			var list = new ArrayList<E>();
+			for (var entity : fetchList()) {
+				list.add(metadata.copy(entity));
+			}
+
+			return Collections.unmodifiableList(list);
+		});
 
-		builder.append(String.join(", ", fieldList)).append(" from `").append(tableName).append("`");
-		for (var foreignKey : foreignKeyList) {
-			builder.append(" left join `").append(foreignKey.getChildTable()).append("` ").append(foreignKey.getAlias()).append(" on `").append(foreignKey.getParentClass()).append("`.`").append(foreignKey.getParentForeignKey()).append("` = `").append(foreignKey.getAlias()).append("`.`id`");
+		var copies = new ArrayList<E>(cachedList.size());
+		for (var entity : cachedList) {
+			copies.add(metadata.copy(entity));
 		}
 
-		builder.append(generateQueryClauses(tableName));
+		return copies;
+	}
 
-		return builder.toString();
+	/**
+	 * Gets the result of this query from the query cache, using the statement and its parameters as the key.
+	 *
+	 * @param kind  The kind of result, since different kinds of results of the same query are cached separately.
+	 * @param query Executes the query.
+	 * @param <R>   The type of the result.
+	 * @return The cached result.
+	 */
+	private <R> R getCached(String kind, Supplier<R> query) {
+		var statement = createPlannedQuery().getQuery();
+		var key = kind + ":" + statement.toCacheKey();
+		return queryCacheModule.getOrAdd(key, SelectPlan.of(this.type, this.fetchPlan, this.selectedColumns).getTables(), query, this.cacheExpiration, this.cacheStaleWindow);
+	}
+
+	/**
+	 * Builds the query from the set query options.
+	 * Values used in the query options are not part of the SQL, but are returned as parameters of the {@link SqlFragment}.
+	 *
+	 * @return The DQL statement for getting data from the database.
+	 */
+	@Override
+	public SqlFragment getQuery() {
+		return createPlannedQuery().getQuery();
+	}
+
+	/**
+	 * Builds the query from the set query options along with the plan for mapping its result.
+	 * The select list and the joins are taken from the {@link SelectPlan} of the entity, so only the query clauses are built for every query.
+	 *
+	 * @return The DQL statement and the plan for mapping its {@link ResultSet} to entities.
+	 */
+	private PlannedQuery createPlannedQuery() {
+		var selectPlan = SelectPlan.of(this.type, this.fetchPlan, this.selectedColumns);
+		var clauses = generateQueryClauses(EntityMetadata.of(this.type).getTableName());
+		return new PlannedQuery(new SqlFragment(selectPlan.getSelectClause() + clauses.getSql(), clauses.getParameters()), selectPlan);
 	}
 
 	/**
 	 * Creates the query clauses for a DQL statement. This contains constraints like a WHERE, an ORDER BY and a LIMIT statement.
 	 *
 	 * @param tableName The table name which is targeted.
-	 * @return A string containing the clauses which can then be appended to the end of a DQL statement.
+	 * @return The clauses which can then be appended to the end of a DQL statement, along with their parameters.
 	 */
-	public String generateQueryClauses(String tableName) {
+	public SqlFragment generateQueryClauses(String tableName) {
 		var builder = new StringBuilder();
+		var parameters = new ArrayList<>();
 
-		var constraints = QueryConstraints.getConstraints(this.type);
-		var clauseCopy = this.whereClause;
-		if (clauseCopy == null) {
-			clauseCopy = constraints;
-		} else {
-			clauseCopy = clauseCopy.and(constraints);
-		}
-
-		builder.append(" where ").append(Lambda2Sql.toSql(clauseCopy, tableName));
-		if (this.orderByClause != null && this.orderByClause.length > 0) {
+		appendWhereClause(builder, parameters, tableName);
+		if (this.sqlOrderByClause != null) {
+			builder.append(" order by ").append(appendFragment(this.sqlOrderByClause, parameters));
+		} else if (this.orderByClause != null && this.orderByClause.length > 0) {
 			builder.append(" order by ");
 
 			if (this.orderByClause.length == 1) {
-				builder.append(Lambda2Sql.toSql(this.orderByClause[0], tableName));
+				builder.append(appendFragment(lambdaModule.toSql(this.orderByClause[0], tableName), parameters));
 			} else {
 				var joiner = new StringJoiner(", ", "coalesce(", ")");
 				for (SqlFunction<E, ?> orderByFunction : this.orderByClause) {
-					joiner.add(Lambda2Sql.toSql(orderByFunction, tableName));
+					joiner.add(appendFragment(lambdaModule.toSql(orderByFunction, tableName), parameters));
 				}
 
 				builder.append(joiner.toString());
@@ -279,10 +632,158 @@ public class EntityQuery<E extends BaseEntity> implements Queryable<E> {
 		}
 
 		if (this.limit != null) {
-			builder.append(" limit ").append(this.limitOffset).append(", ").append(this.limit);
+			builder.append(" limit ?, ?");
+			parameters.add(this.limitOffset);
+			parameters.add(this.limit);
+		}
+
+		return new SqlFragment(builder.toString(), parameters.toArray());
+	}
+
+	/**
+	 * Appends the WHERE clause of this query, which consists of its conditions and the {@link QueryConstraints} of the entity.
+	 *
+	 * @param builder    The statement to append the WHERE clause to.
+	 * @param parameters The parameters of the statement.
+	 * @param tableName  The table name which is targeted.
+	 */
+	private void appendWhereClause(StringBuilder builder, List<Object> parameters, String tableName) {
+		SqlPredicate<E> constraints = this.applyConstraints ? QueryConstraints.getConstraints(this.type) : x -> true;
+		var clauseCopy = this.whereClause;
+		if (clauseCopy == null) {
+			clauseCopy = constraints;
+		} else {
+			clauseCopy = clauseCopy.and(constraints);
+		}
+
+		var condition = appendFragment(lambdaModule.toSql(clauseCopy, tableName), parameters);
+		if (this.sqlConditions.isEmpty()) {
+			builder.append(" where ").append(condition);
+		} else {
+			builder.append(" where (").append(condition).append(")");
+			for (var sqlCondition : this.sqlConditions) {
+				builder.append(" and (").append(appendFragment(sqlCondition, parameters)).append(")");
+			}
+		}
+	}
+
+	/**
+	 * Counts the rows matching the WHERE clause of this query. Ordering and limits are not considered.
+	 *
+	 * @return The amount of rows this query would return without a limit.
+	 * @throws IllegalArgumentException if the rows cannot be counted.
+	 */
+	public long count() {
+		var tableName = getTableName();
+		var builder = new StringBuilder("select count(*) from `").append(tableName).append("`");
+		var parameters = new ArrayList<>();
+		appendWhereClause(builder, parameters, tableName);
+		try (var connection = new DBConnection();
+			 var result = connection.execute(builder.toString(), parameters.toArray())) {
+			return result.next() ? result.getLong(1) : 0;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new IllegalArgumentException(String.format("Could not get amount of rows in table %s for this query.", tableName));
+		}
+	}
+
+	/**
+	 * Estimates the rows matching the WHERE clause of this query using the statistics of the database, without counting them.
+	 * This is a lot faster than {@link #count()} for big tables, but can be off by a considerable amount.
+	 *
+	 * @return The estimated amount of rows this query would return without a limit.
+	 * @throws IllegalArgumentException if the rows cannot be estimated.
+	 */
+	public long estimateCount() {
+		var tableName = getTableName();
+		var builder = new StringBuilder("explain select `").append(tableName).append("`.`id` from `").append(tableName).append("`");
+		var parameters = new ArrayList<>();
+		appendWhereClause(builder, parameters, tableName);
+		try (var connection = new DBConnection();
+			 var result = connection.execute(builder.toString(), parameters.toArray())) {
+			if (!result.next()) {
+				return 0;
+			}
+
+			var rows = result.getLong("rows");
+			var filtered = result.getDouble("filtered");
+			return result.wasNull() ? rows : Math.round(rows * filtered / 100);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new IllegalArgumentException(String.format("Could not estimate amount of rows in table %s for this query.", tableName));
 		}
+	}
+
+	/**
+	 * Adds the parameters of a fragment to a list of parameters.
+	 *
+	 * @param fragment   The fragment which is part of a bigger statement.
+	 * @param parameters The parameters of the bigger statement.
+	 * @return The SQL of the fragment.
+	 */
+	private String appendFragment(SqlFragment fragment, List<Object> parameters) {
+		parameters.addAll(Arrays.asList(fragment.getParameters()));
+		return fragment.getSql();
+	}
+
+	/**
+	 * A DQL statement together with the plan for mapping its result and loading its foreign key entities.
+	 */
+	private static class PlannedQuery {
+
+		private final SqlFragment query;
+		private final SelectPlan selectPlan;
 
-		return builder.toString();
+		PlannedQuery(SqlFragment query, SelectPlan selectPlan) {
+			this.query = query;
+			this.selectPlan = selectPlan;
+		}
+
+		SqlFragment getQuery() {
+			return query;
+		}
+
+		MappingPlan getMappingPlan() {
+			return selectPlan.getMappingPlan();
+		}
+
+		boolean hasBatches() {
+			return !selectPlan.getBatchFetches().isEmpty();
+		}
+
+		/**
+		 * Loads the foreign key entities which are loaded in batches after the statement has been executed.
+		 *
+		 * @param entities   The entities read by the statement.
+		 * @param connection The connection the statement was executed on.
+		 * @throws SQLException if the foreign key entities cannot be read.
+		 */
+		void loadBatches(List<? extends BaseEntity> entities, DBConnection connection) throws SQLException {
+			selectPlan.loadBatches(entities, connection);
+		}
+
+		/**
+		 * Executes the statement on a connection, binding its parameters.
+		 *
+		 * @param connection The connection to execute the statement on.
+		 * @return The {@link ResultSet} of the statement.
+		 * @throws SQLException if the statement cannot be executed.
+		 */
+		ResultSet execute(DBConnection connection) throws SQLException {
+			return connection.execute(query.getSql(), query.getParameters());
+		}
+
+		/**
+		 * Executes the statement on a connection so that its result is read while it is iterated.
+		 *
+		 * @param connection The connection to execute the statement on.
+		 * @return The {@link ResultSet} of the statement.
+		 * @throws SQLException if the statement cannot be executed.
+		 * @see DBConnection#executeStreaming(String, Object...)
+		 */
+		ResultSet executeStreaming(DBConnection connection) throws SQLException {
+			return connection.executeStreaming(query.getSql(), query.getParameters());
+		}
 	}
 
 	/**
@@ -0,0 +1,314 @@
+package com.github.collinalpert.java2db.queries;
+
+import com.github.collinalpert.java2db.annotations.ForeignKeyEntity;
+import com.github.collinalpert.java2db.database.EntityMetadata;
+import com.github.collinalpert.java2db.database.ForeignKeyMetadata;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+import com.github.collinalpert.lambda2sql.functions.SqlFunction;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Describes which foreign key entities, marked with the {@link ForeignKeyEntity} annotation, are loaded and filled when an entity is queried, and how.
+ * Per default, all foreign key entities are loaded, including their own foreign key entities, using the {@link FetchStrategy} of their annotation.
+ * Foreign key entities which are not loaded are left {@code null}, while the columns holding their foreign keys are still filled.
+ * <p>
+ * Foreign key entities are referred to by their path, which consists of the names of the foreign key fields separated by dots,
+ * for example {@code address.country}. A plan is immutable, so every method returns a new plan.
+ *
+ * @param <E> The type of the queried entity.
+ * @author Collin Alpert
+ */
+public final class FetchPlan<E extends BaseEntity> {
+
+	private final Class<E> type;
+
+	/**
+	 * The paths of the foreign key entities to load. If it is empty, all foreign key entities are loaded, except for the excluded ones.
+	 */
+	private final Set<String> includes;
+	private final Set<String> excludes;
+
+	/**
+	 * The strategies of the foreign key entities which are not loaded like their annotation specifies.
+	 */
+	private final Map<String, FetchStrategy> strategies;
+	private final int maxDepth;
+
+	private FetchPlan(Class<E> type, Set<String> includes, Set<String> excludes, Map<String, FetchStrategy> strategies, int maxDepth) {
+		this.type = type;
+		this.includes = Collections.unmodifiableSet(includes);
+		this.excludes = Collections.unmodifiableSet(excludes);
+		this.strategies = Collections.unmodifiableMap(strategies);
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Creates the default plan for an entity, which loads all foreign key entities.
+	 *
+	 * @param type The type of the queried entity.
+	 * @param <E>  The type of the queried entity.
+	 * @return A plan loading all foreign key entities.
+	 */
+	public static <E extends BaseEntity> FetchPlan<E> of(Class<E> type) {
+		return new FetchPlan<>(type, new LinkedHashSet<>(), new LinkedHashSet<>(), new LinkedHashMap<>(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Only loads the included foreign key entities. The first call to an {@code include} method restricts the plan to the included entities.
+	 *
+	 * @param foreignKey The getter of a foreign key entity of the queried entity, for example {@code Person::getAddress}.
+	 * @return A new plan which also loads this foreign key entity.
+	 */
+	public FetchPlan<E> include(SqlFunction<E, ?> foreignKey) {
+		return include(resolveFieldName(foreignKey));
+	}
+
+	/**
+	 * Only loads the included foreign key entities. The first call to an {@code include} method restricts the plan to the included entities.
+	 * Including a nested foreign key entity also loads the entities on the way to it.
+	 *
+	 * @param path The path of the foreign key entity, for example {@code address.country}.
+	 * @return A new plan which also loads this foreign key entity.
+	 */
+	public FetchPlan<E> include(String path) {
+		validatePath(path);
+		var newIncludes = new LinkedHashSet<>(this.includes);
+		newIncludes.add(path);
+		return new FetchPlan<>(this.type, newIncludes, new LinkedHashSet<>(this.excludes), new LinkedHashMap<>(this.strategies), this.maxDepth);
+	}
+
+	/**
+	 * Does not load a foreign key entity, and therefore none of its own foreign key entities either.
+	 *
+	 * @param foreignKey The getter of a foreign key entity of the queried entity, for example {@code Person::getAddress}.
+	 * @return A new plan which does not load this foreign key entity.
+	 */
+	public FetchPlan<E> exclude(SqlFunction<E, ?> foreignKey) {
+		return exclude(resolveFieldName(foreignKey));
+	}
+
+	/**
+	 * Does not load a foreign key entity, and therefore none of its own foreign key entities either.
+	 *
+	 * @param path The path of the foreign key entity, for example {@code address.country}.
+	 * @return A new plan which does not load this foreign key entity.
+	 */
+	public FetchPlan<E> exclude(String path) {
+		validatePath(path);
+		var newExcludes = new LinkedHashSet<>(this.excludes);
+		newExcludes.add(path);
+		return new FetchPlan<>(this.type, new LinkedHashSet<>(this.includes), newExcludes, new LinkedHashMap<>(this.strategies), this.maxDepth);
+	}
+
+	/**
+	 * Loads a foreign key entity using a different strategy than the one specified in its {@link ForeignKeyEntity} annotation.
+	 *
+	 * @param foreignKey The getter of a foreign key entity of the queried entity, for example {@code Person::getAddress}.
+	 * @param strategy   The way to load the foreign key entity.
+	 * @return A new plan which loads this foreign key entity using the strategy.
+	 */
+	public FetchPlan<E> fetch(SqlFunction<E, ?> foreignKey, FetchStrategy strategy) {
+		return fetch(resolveFieldName(foreignKey), strategy);
+	}
+
+	/**
+	 * Loads a foreign key entity using a different strategy than the one specified in its {@link ForeignKeyEntity} annotation.
+	 *
+	 * @param path     The path of the foreign key entity, for example {@code address.country}.
+	 * @param strategy The way to load the foreign key entity.
+	 * @return A new plan which loads this foreign key entity using the strategy.
+	 */
+	public FetchPlan<E> fetch(String path, FetchStrategy strategy) {
+		if (strategy == null) {
+			throw new IllegalArgumentException("The fetch strategy of a foreign key entity cannot be null.");
+		}
+
+		validatePath(path);
+		var newStrategies = new LinkedHashMap<>(this.strategies);
+		newStrategies.put(path, strategy);
+		return new FetchPlan<>(this.type, new LinkedHashSet<>(this.includes), new LinkedHashSet<>(this.excludes), newStrategies, this.maxDepth);
+	}
+
+	/**
+	 * Limits how deep foreign key entities are loaded. A depth of 1 only loads the foreign key entities of the queried entity itself,
+	 * while a depth of 0 does not load any.
+	 *
+	 * @param maxDepth The maximum depth of loaded foreign key entities.
+	 * @return A new plan with this maximum depth.
+	 */
+	public FetchPlan<E> maxDepth(int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("The maximum depth of a fetch plan cannot be negative.");
+		}
+
+		return new FetchPlan<>(this.type, new LinkedHashSet<>(this.includes), new LinkedHashSet<>(this.excludes), new LinkedHashMap<>(this.strategies), maxDepth);
+	}
+
+	Class<E> getType() {
+		return this.type;
+	}
+
+	/**
+	 * Decides if a foreign key entity is loaded.
+	 *
+	 * @param path  The path of the foreign key entity.
+	 * @param depth The depth of the foreign key entity, which is 1 for the foreign key entities of the queried entity.
+	 * @return {@code True} if the foreign key entity is loaded, {@code false} if it is left {@code null}.
+	 */
+	boolean shouldLoad(String path, int depth) {
+		if (depth > this.maxDepth) {
+			return false;
+		}
+
+		for (var exclude : this.excludes) {
+			if (isSameOrBelow(path, exclude)) {
+				return false;
+			}
+		}
+
+		if (this.includes.isEmpty()) {
+			return true;
+		}
+
+		for (var include : this.includes) {
+			if (isSameOrBelow(include, path)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Decides how a foreign key entity is loaded.
+	 *
+	 * @param path       The path of the foreign key entity.
+	 * @param foreignKey The foreign key field.
+	 * @return The strategy set for the path in this plan, or otherwise the one of the annotation of the field.
+	 */
+	FetchStrategy getStrategy(String path, ForeignKeyMetadata foreignKey) {
+		return this.strategies.getOrDefault(path, foreignKey.getFetchStrategy());
+	}
+
+	/**
+	 * Creates the plan for loading a foreign key entity on its own, which contains the parts of this plan below its path.
+	 * This is used when a foreign key entity is loaded in a separate query instead of being joined.
+	 *
+	 * @param type  The type of the foreign key entity.
+	 * @param path  The path of the foreign key entity.
+	 * @param depth The depth of the foreign key entity.
+	 * @param <R>   The type of the foreign key entity.
+	 * @return The plan for querying the foreign key entity.
+	 */
+	<R extends BaseEntity> FetchPlan<R> below(Class<R> type, String path, int depth) {
+		var prefix = path + ".";
+		var newIncludes = new LinkedHashSet<String>();
+		for (var include : this.includes) {
+			if (include.startsWith(prefix)) {
+				newIncludes.add(include.substring(prefix.length()));
+			}
+		}
+
+		var newExcludes = new LinkedHashSet<String>();
+		for (var exclude : this.excludes) {
+			if (exclude.startsWith(prefix)) {
+				newExcludes.add(exclude.substring(prefix.length()));
+			}
+		}
+
+		var newStrategies = new LinkedHashMap<String, FetchStrategy>();
+		this.strategies.forEach((strategyPath, strategy) -> {
+			if (strategyPath.startsWith(prefix)) {
+				newStrategies.put(strategyPath.substring(prefix.length()), strategy);
+			}
+		});
+
+		var newMaxDepth = this.maxDepth == Integer.MAX_VALUE ? Integer.MAX_VALUE : this.maxDepth - depth;
+
+		// The foreign key entity itself was included, but none of its own foreign key entities.
+		if (!this.includes.isEmpty() && newIncludes.isEmpty()) {
+			newMaxDepth = 0;
+		}
+
+		return new FetchPlan<>(type, newIncludes, newExcludes, newStrategies, newMaxDepth);
+	}
+
+	private static boolean isSameOrBelow(String path, String ancestor) {
+		return path.equals(ancestor) || path.startsWith(ancestor + ".");
+	}
+
+	/**
+	 * Checks that every segment of a path is a foreign key entity field of the entity it refers to.
+	 *
+	 * @param path The path to check.
+	 */
+	private void validatePath(String path) {
+		var metadata = EntityMetadata.of(this.type);
+		for (var fieldName : path.split("\\.", -1)) {
+			var foreignKey = metadata.getForeignKeys().stream().filter(x -> !x.isEnum() && x.getFieldName().equals(fieldName)).findFirst();
+			if (foreignKey.isEmpty()) {
+				throw new IllegalArgumentException(String.format("%s does not have a foreign key entity called %s.", metadata.getType().getSimpleName(), fieldName));
+			}
+
+			metadata = EntityMetadata.of(foreignKey.get().getEntityType());
+		}
+	}
+
+	/**
+	 * Finds the foreign key field a getter returns. Since the getter is compiled code, it is called on an instance of the entity
+	 * in which every foreign key field holds a distinct placeholder, which then tells which field the getter returned.
+	 *
+	 * @param foreignKey The getter of a foreign key entity.
+	 * @return The name of the foreign key field.
+	 */
+	private String resolveFieldName(SqlFunction<E, ?> foreignKey) {
+		var metadata = EntityMetadata.of(this.type);
+		E probe = metadata.createInstance();
+		var placeholders = new IdentityHashMap<Object, String>();
+		for (var field : metadata.getForeignKeys()) {
+			if (!field.isEnum()) {
+				var placeholder = EntityMetadata.of(field.getEntityType()).createInstance();
+				field.setValue(probe, placeholder);
+				placeholders.put(placeholder, field.getFieldName());
+			}
+		}
+
+		var fieldName = placeholders.get(foreignKey.apply(probe));
+		if (fieldName == null) {
+			throw new IllegalArgumentException(String.format("The function does not return a foreign key entity of %s.", this.type.getSimpleName()));
+		}
+
+		return fieldName;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+
+		if (!(o instanceof FetchPlan)) {
+			return false;
+		}
+
+		var other = (FetchPlan<?>) o;
+		return this.maxDepth == other.maxDepth && this.type == other.type && this.includes.equals(other.includes) && this.excludes.equals(other.excludes) && this.strategies.equals(other.strategies);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.type, this.includes, this.excludes, this.strategies, this.maxDepth);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FetchPlan{type=%s, includes=%s, excludes=%s, strategies=%s, maxDepth=%d}", this.type.getSimpleName(), this.includes, this.excludes, this.strategies, this.maxDepth);
+	}
+}
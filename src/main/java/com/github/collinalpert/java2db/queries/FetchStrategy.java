@@ -0,0 +1,22 @@
+package com.github.collinalpert.java2db.queries;
+
+/**
+ * An enum representing the ways a foreign key entity can be loaded when the entity referencing it is queried.
+ *
+ * @author Collin Alpert
+ */
+public enum FetchStrategy {
+
+	/**
+	 * The table of the foreign key entity is joined in the query of the referencing entity, so everything is read with a single query.
+	 * The columns of the foreign key entity are read again for every row referencing it.
+	 */
+	JOIN,
+
+	/**
+	 * The query of the referencing entity only reads the foreign key. Afterwards, the distinct foreign keys of all rows are read
+	 * in additional queries with {@code where id in (...)} conditions, and every foreign key entity is created only once.
+	 * This is faster when a lot of rows reference the same few entities. It requires the entity to have a field for the foreign key column.
+	 */
+	BATCH
+}
@@ -1,5 +1,8 @@
 package com.github.collinalpert.java2db.queries;
 
+import com.github.collinalpert.java2db.utilities.AsyncExecutor;
+
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -11,6 +14,29 @@ import java.util.stream.Stream;
  */
 public interface Queryable<T> {
 
+	/**
+	 * Caches the result of this query. Executing the same query again returns the cached result until it expires
+	 * or one of the tables it was read from is changed through a service.
+	 *
+	 * @param expiration The duration the result is cached for.
+	 * @return This query, with caching enabled.
+	 */
+	default Queryable<T> cached(Duration expiration) {
+		return cached(expiration, Duration.ZERO);
+	}
+
+	/**
+	 * Caches the result of this query. Executing the same query again returns the cached result until it expires
+	 * or one of the tables it was read from is changed through a service.
+	 * After the result has expired, it is still returned for the duration of the {@code staleWindow}, while a new result is loaded in the background.
+	 * This way, frequently executed queries never wait for the database once they are cached.
+	 *
+	 * @param expiration  The duration the result is cached for.
+	 * @param staleWindow The duration after the expiration during which the expired result is still returned while it is reloaded.
+	 * @return This query, with caching enabled.
+	 */
+	Queryable<T> cached(Duration expiration, Duration staleWindow);
+
 	// region Synchronous
 
 	/**
@@ -29,9 +55,11 @@ public interface Queryable<T> {
 	List<T> toList();
 
 	/**
-	 * Executes the query and returns the result as a {@link Stream}
+	 * Executes the query and returns the result as a {@link Stream}.
+	 * The stream may hold on to a database connection until it is exhausted or closed.
+	 * It should therefore either be consumed entirely or be used in a try-with-resources statement.
 	 *
-	 * @return A list of entities representing the result rows.
+	 * @return A stream of entities representing the result rows.
 	 */
 	Stream<T> toStream();
 
@@ -54,7 +82,7 @@ public interface Queryable<T> {
 	 * @see #getFirst()
 	 */
 	default CompletableFuture<Optional<T>> getFirstAsync() {
-		return CompletableFuture.supplyAsync(this::getFirst);
+		return AsyncExecutor.supplyAsync(this::getFirst);
 
 	}
 
@@ -66,7 +94,7 @@ public interface Queryable<T> {
 	 * @see #getFirst()
 	 */
 	default CompletableFuture<Void> getFirstAsync(Consumer<? super Optional<T>> callback) {
-		return this.getFirstAsync().thenAcceptAsync(callback);
+		return this.getFirstAsync().thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	/**
@@ -77,7 +105,7 @@ public interface Queryable<T> {
 	 * @see #toList()
 	 */
 	default CompletableFuture<List<T>> toListAsync() {
-		return CompletableFuture.supplyAsync(this::toList);
+		return AsyncExecutor.supplyAsync(this::toList);
 	}
 
 	/**
@@ -88,29 +116,36 @@ public interface Queryable<T> {
 	 * @see #toList()
 	 */
 	default CompletableFuture<Void> toListAsync(Consumer<? super List<T>> callback) {
-		return this.toListAsync().thenAcceptAsync(callback);
+		return this.toListAsync().thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	/**
 	 * The asynchronous version of the {@link #toStream()} method.
 	 *
+	 * Like the result of {@link #toStream()}, the stream has to be consumed entirely or closed.
+	 *
 	 * @return The asynchronous operation which will retrieve the data from the database.
 	 * Custom handling for the {@code CompletableFuture} can be done here.
 	 * @see #toStream()
 	 */
 	default CompletableFuture<Stream<T>> toStreamAsync() {
-		return CompletableFuture.supplyAsync(this::toStream);
+		return AsyncExecutor.supplyAsync(this::toStream);
 	}
 
 	/**
 	 * The asynchronous version of the {@link #toStream()} method.
+	 * The stream is closed once the callback returns, so it can only be used within the callback.
 	 *
 	 * @param callback The action to be applied to the result once it is fetched from the database.
 	 * @return The asynchronous operation which will retrieve the data from the database and apply the given action to the result.
 	 * @see #toStream()
 	 */
 	default CompletableFuture<Void> toStreamAsync(Consumer<? super Stream<T>> callback) {
-		return toStreamAsync().thenAcceptAsync(callback);
+		return toStreamAsync().thenAcceptAsync(stream -> {
+			try (stream) {
+				callback.accept(stream);
+			}
+		}, AsyncExecutor.getExecutor());
 	}
 
 	/**
@@ -121,7 +156,7 @@ public interface Queryable<T> {
 	 * @see #toArray()
 	 */
 	default CompletableFuture<T[]> toArrayAsync() {
-		return CompletableFuture.supplyAsync(this::toArray);
+		return AsyncExecutor.supplyAsync(this::toArray);
 	}
 
 	/**
@@ -132,15 +167,16 @@ public interface Queryable<T> {
 	 * @see #toArray()
 	 */
 	default CompletableFuture<Void> toArrayAsync(Consumer<? super T[]> callback) {
-		return toArrayAsync().thenAcceptAsync(callback);
+		return toArrayAsync().thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	// endregion
 
 	/**
 	 * Responsible for building and returning the individual DQL statement.
+	 * The statement contains {@code ?} placeholders for values, which are bound when the statement is executed.
 	 *
-	 * @return The DQL statement which fetches data from the database.
+	 * @return The DQL statement which fetches data from the database, along with its parameters.
 	 */
-	String getQuery();
+	SqlFragment getQuery();
 }
@@ -0,0 +1,244 @@
+package com.github.collinalpert.java2db.queries;
+
+import com.github.collinalpert.java2db.database.ColumnMetadata;
+import com.github.collinalpert.java2db.database.DBConnection;
+import com.github.collinalpert.java2db.database.EntityMetadata;
+import com.github.collinalpert.java2db.database.ForeignKeyMetadata;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+import com.github.collinalpert.java2db.mappers.MappingPlan;
+import com.github.collinalpert.java2db.utilities.UniqueIdentifier;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The part of a DQL statement for an entity which does not depend on the query options: the select list and the joins of the foreign keys,
+ * along with the plan for mapping the selected columns and the foreign key entities which are loaded in batches after the query.
+ * It is created once per entity class, {@link FetchPlan} and set of selected columns and is immutable, so it can be shared by all queries on any thread.
+ *
+ * @author Collin Alpert
+ */
+final class SelectPlan {
+
+	/**
+	 * The plans of every entity class, keyed by the fetch plan and the selected columns.
+	 */
+	private static final ClassValue<Map<List<Object>, SelectPlan>> plans = new ClassValue<>() {
+		@Override
+		protected Map<List<Object>, SelectPlan> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	/**
+	 * The statement up to and including the joins, for example {@code select ... from `person` left join `gender` g1 on ...}.
+	 */
+	private final String selectClause;
+	private final MappingPlan mappingPlan;
+
+	/**
+	 * The tables the entity is read from, which are its own table and the tables of the entities its foreign keys refer to.
+	 */
+	private final Set<String> tables;
+
+	/**
+	 * The foreign key entities which use the {@link FetchStrategy#BATCH} strategy and are loaded after the query.
+	 */
+	private final List<BatchFetch> batchFetches;
+
+	private SelectPlan(EntityMetadata metadata, FetchPlan<?> fetchPlan, Set<ColumnMetadata> selectedColumns) {
+		var fieldList = new ArrayList<String>();
+		var joins = new StringBuilder();
+		var tables = new LinkedHashSet<String>();
+		var batchFetches = new ArrayList<BatchFetch>();
+		var tableName = metadata.getTableName();
+		var mapping = createMapping(metadata, tableName, "", new ArrayList<>(), fetchPlan, selectedColumns, fieldList, joins, tables, batchFetches, new UniqueIdentifier());
+
+		this.selectClause = "select " + String.join(", ", fieldList) + " from `" + tableName + "`" + joins;
+		this.mappingPlan = new MappingPlan(mapping);
+		this.tables = Collections.unmodifiableSet(tables);
+		this.batchFetches = Collections.unmodifiableList(batchFetches);
+	}
+
+	/**
+	 * Gets the plan for an entity class which joins all of its foreign keys, creating it the first time it is requested.
+	 *
+	 * @param type The entity class.
+	 * @param <E>  The type of the entity.
+	 * @return The plan for selecting the entity.
+	 */
+	static <E extends BaseEntity> SelectPlan of(Class<E> type) {
+		return of(type, FetchPlan.of(type));
+	}
+
+	/**
+	 * Gets the plan for an entity class which only joins the foreign keys the fetch plan asks for, creating it the first time it is requested.
+	 *
+	 * @param type      The entity class.
+	 * @param fetchPlan Decides which foreign keys are joined.
+	 * @param <E>       The type of the entity.
+	 * @return The plan for selecting the entity.
+	 */
+	static <E extends BaseEntity> SelectPlan of(Class<E> type, FetchPlan<E> fetchPlan) {
+		return of(type, fetchPlan, Set.of());
+	}
+
+	/**
+	 * Gets the plan for an entity class which only selects some of its columns, creating it the first time it is requested.
+	 * The id is always selected. Foreign key entities are only loaded if their foreign key column is selected.
+	 *
+	 * @param type            The entity class.
+	 * @param fetchPlan       Decides which foreign keys are joined.
+	 * @param selectedColumns The columns of the entity to select, or an empty set to select all of them.
+	 * @param <E>             The type of the entity.
+	 * @return The plan for selecting the entity.
+	 */
+	static <E extends BaseEntity> SelectPlan of(Class<E> type, FetchPlan<E> fetchPlan, Set<ColumnMetadata> selectedColumns) {
+		return plans.get(type).computeIfAbsent(List.of(fetchPlan, selectedColumns), key -> new SelectPlan(EntityMetadata.of(type), fetchPlan, selectedColumns));
+	}
+
+	String getSelectClause() {
+		return selectClause;
+	}
+
+	MappingPlan getMappingPlan() {
+		return mappingPlan;
+	}
+
+	Set<String> getTables() {
+		return tables;
+	}
+
+	List<BatchFetch> getBatchFetches() {
+		return batchFetches;
+	}
+
+	/**
+	 * Loads the foreign key entities which are loaded in batches for the entities of a query result.
+	 *
+	 * @param entities   The entities of the query result.
+	 * @param connection The connection the query result was read with, on which the foreign key entities are read as well.
+	 * @throws SQLException if the foreign key entities cannot be read.
+	 */
+	void loadBatches(List<? extends BaseEntity> entities, DBConnection connection) throws SQLException {
+		if (entities.isEmpty()) {
+			return;
+		}
+
+		for (var batchFetch : batchFetches) {
+			batchFetch.load(entities, connection);
+		}
+	}
+
+	/**
+	 * Selects the columns of an entity and joins its foreign keys, while recording the index of every selected column.
+	 * The aliases of the joined tables are generated in the same order as by {@link MappingPlan#forLabels}, so the labels of the columns match.
+	 * Foreign keys the fetch plan does not ask for are not joined and are left {@code null} by the mapping.
+	 * Foreign keys which are loaded in batches are not joined either, but are recorded to be loaded after the query.
+	 *
+	 * @param metadata        The entity to select.
+	 * @param identifier      The table name or alias the entity is selected from.
+	 * @param path            The path of the entity in the fetch plan, which is empty for the queried entity.
+	 * @param ownerPath       The foreign key fields leading from the queried entity to the entity, which is empty for the queried entity.
+	 * @param fetchPlan       Decides which foreign keys are joined.
+	 * @param selectedColumns The columns of the queried entity to select, or an empty set to select all of them.
+	 * @param fieldList       The select list of the query, which the columns are appended to.
+	 * @param joins           The joins of the query, which the foreign keys are appended to.
+	 * @param tables          The tables the query reads from, which the table of the entity is added to.
+	 * @param batchFetches    The foreign keys which are loaded in batches after the query.
+	 * @param identifiers     Generates the aliases of the joined tables.
+	 * @return The mapping of the selected columns to the entity.
+	 */
+	private static MappingPlan.EntityMapping createMapping(EntityMetadata metadata, String identifier, String path, List<ForeignKeyMetadata> ownerPath, FetchPlan<?> fetchPlan, Set<ColumnMetadata> selectedColumns, List<String> fieldList, StringBuilder joins, Set<String> tables, List<BatchFetch> batchFetches, UniqueIdentifier identifiers) {
+		tables.add(metadata.getTableName());
+		var mapping = new MappingPlan.EntityMapping.Builder(metadata);
+		var isPartial = ownerPath.isEmpty() && !selectedColumns.isEmpty();
+		for (var column : metadata.getColumns()) {
+			// Enums are not selected, since they are determined by the value of their foreign key column.
+			if (column.getType().isEnum()) {
+				continue;
+			}
+
+			var isSelected = isPartial ? column.isId() || selectedColumns.contains(column) : !column.isLazy();
+			if (!isSelected) {
+				// Lazy columns can be written without being loaded, while other columns left out by a partial select must not be overwritten.
+				if (!column.isLazy()) {
+					mapping.addUnloadedColumn(column);
+				}
+
+				continue;
+			}
+
+			fieldList.add(String.format("`%s`.`%s` as %s_%s", identifier, column.getColumnName(), identifier, column.getColumnName()));
+			mapping.addColumn(fieldList.size(), column);
+		}
+
+		for (var foreignKey : metadata.getForeignKeys()) {
+			if (foreignKey.isEnum()) {
+				mapping.addEnum(foreignKey);
+				continue;
+			}
+
+			if (isPartial && !selectedColumns.contains(foreignKey.getForeignKeyColumn())) {
+				continue;
+			}
+
+			var foreignKeyPath = path.isEmpty() ? foreignKey.getFieldName() : path + "." + foreignKey.getFieldName();
+			var depth = ownerPath.size() + 1;
+			if (!fetchPlan.shouldLoad(foreignKeyPath, depth)) {
+				continue;
+			}
+
+			// Without a field for the foreign key, its value is not known after the query, so the foreign key entity has to be joined.
+			if (fetchPlan.getStrategy(foreignKeyPath, foreignKey) == FetchStrategy.BATCH && foreignKey.getForeignKeyColumn() != null) {
+				batchFetches.add(new BatchFetch(ownerPath, foreignKey, fetchPlan.below(foreignKey.getEntityType(), foreignKeyPath, depth)));
+				collectTables(EntityMetadata.of(foreignKey.getEntityType()), tables, new HashSet<>());
+				continue;
+			}
+
+			var alias = identifiers.generate(foreignKey.getReferencedTableName().substring(0, 1));
+			joins.append(" left join `").append(foreignKey.getReferencedTableName()).append("` ").append(alias).append(" on `").append(identifier).append("`.`").append(foreignKey.getForeignKeyName()).append("` = `").append(alias).append("`.`id`");
+
+			ownerPath.add(foreignKey);
+			var foreignKeyMapping = createMapping(EntityMetadata.of(foreignKey.getEntityType()), alias, foreignKeyPath, ownerPath, fetchPlan, selectedColumns, fieldList, joins, tables, batchFetches, identifiers);
+			ownerPath.remove(ownerPath.size() - 1);
+
+			// If the entity has a field for the foreign key, it tells if the referenced entity exists. Otherwise the id of the joined row is used.
+			var nullCheckIndex = foreignKey.getForeignKeyColumn() == null ? -1 : mapping.indexOf(foreignKey.getForeignKeyColumn());
+			if (nullCheckIndex == -1) {
+				nullCheckIndex = foreignKeyMapping.indexOfId();
+			}
+
+			mapping.addForeignKey(foreignKey, nullCheckIndex, foreignKeyMapping);
+		}
+
+		return mapping.build();
+	}
+
+	/**
+	 * Adds the tables an entity loaded in batches may be read from, which are its own table and the ones of all of its foreign key entities.
+	 *
+	 * @param metadata The entity.
+	 * @param tables   The tables the query reads from.
+	 * @param visited  The entities which have already been visited, since foreign keys can refer back to them.
+	 */
+	private static void collectTables(EntityMetadata metadata, Set<String> tables, Set<Class<?>> visited) {
+		if (!visited.add(metadata.getType())) {
+			return;
+		}
+
+		tables.add(metadata.getTableName());
+		for (var foreignKey : metadata.getForeignKeys()) {
+			if (!foreignKey.isEnum()) {
+				collectTables(EntityMetadata.of(foreignKey.getEntityType()), tables, visited);
+			}
+		}
+	}
+}
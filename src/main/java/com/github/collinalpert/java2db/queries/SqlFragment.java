@@ -0,0 +1,68 @@
+package com.github.collinalpert.java2db.queries;
+
+import java.util.Arrays;
+
+/**
+ * Describes a piece of SQL which contains {@code ?} placeholders along with the values which are bound to them.
+ * This can be an entire statement or just a part of one, like a WHERE condition.
+ *
+ * @author Collin Alpert
+ */
+public class SqlFragment {
+
+	private static final Object[] NO_PARAMETERS = new Object[0];
+
+	/**
+	 * The SQL containing a {@code ?} placeholder for every parameter.
+	 */
+	private final String sql;
+
+	/**
+	 * The values for the placeholders, in the order they appear in the SQL.
+	 */
+	private final Object[] parameters;
+
+	public SqlFragment(String sql) {
+		this(sql, NO_PARAMETERS);
+	}
+
+	public SqlFragment(String sql, Object... parameters) {
+		this.sql = sql;
+		this.parameters = parameters;
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	public Object[] getParameters() {
+		return parameters;
+	}
+
+	public boolean hasParameters() {
+		return parameters.length > 0;
+	}
+
+	/**
+	 * Creates a key which identifies this fragment along with its parameters, for example to cache the result of a statement.
+	 * Every part is preceded by its length and every parameter also by its type, so different fragments never produce the same key,
+	 * even if the text of their parameters would read the same when joined, like {@code ("a, b", "c")} and {@code ("a", "b, c")}.
+	 *
+	 * @return A key which is only equal for fragments with the same SQL and equal parameters.
+	 */
+	public String toCacheKey() {
+		var builder = new StringBuilder().append(sql.length()).append(':').append(sql);
+		for (var parameter : parameters) {
+			var type = parameter == null ? "null" : parameter.getClass().getName();
+			var value = Arrays.deepToString(new Object[]{parameter});
+			builder.append('|').append(type).append(':').append(value.length()).append(':').append(value);
+		}
+
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return hasParameters() ? sql + " " + Arrays.toString(parameters) : sql;
+	}
+}
@@ -2,6 +2,7 @@ package com.github.collinalpert.java2db.services;
 
 import com.github.collinalpert.java2db.entities.BaseEntity;
 import com.github.collinalpert.java2db.queries.OrderTypes;
+import com.github.collinalpert.java2db.utilities.AsyncExecutor;
 import com.github.collinalpert.java2db.utilities.CallbackUtils;
 import com.github.collinalpert.lambda2sql.functions.SqlFunction;
 import com.github.collinalpert.lambda2sql.functions.SqlPredicate;
@@ -60,7 +61,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #create(BaseEntity)
 	 */
 	public CompletableFuture<Void> createAsync(T instance, Consumer<? super Long> callback, Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.supplyAsync(supplierHandling(() -> super.create(instance), exceptionHandling)).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(supplierHandling(() -> super.create(instance), exceptionHandling)).thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	/**
@@ -108,7 +109,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #create(List)
 	 */
 	public CompletableFuture<Void> createAsync(List<T> instances, Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.create(instances), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.create(instances), exceptionHandling));
 	}
 
 	//endregion
@@ -125,7 +126,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #count()
 	 */
 	public CompletableFuture<Void> countAsync(Consumer<? super Long> callback) {
-		return CompletableFuture.supplyAsync(super::count).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(super::count).thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	/**
@@ -137,7 +138,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #count(SqlPredicate)
 	 */
 	public CompletableFuture<Void> countAsync(SqlPredicate<T> predicate, Consumer<? super Long> callback) {
-		return CompletableFuture.supplyAsync(() -> super.count(predicate)).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(() -> super.count(predicate)).thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	//endregion
@@ -152,7 +153,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #any()
 	 */
 	public CompletableFuture<Void> anyAsync(Consumer<? super Boolean> callback) {
-		return CompletableFuture.supplyAsync(super::any).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(super::any).thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	/**
@@ -164,7 +165,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #any(SqlPredicate)
 	 */
 	public CompletableFuture<Void> anyAsync(SqlPredicate<T> predicate, Consumer<? super Boolean> callback) {
-		return CompletableFuture.supplyAsync(() -> super.any(predicate)).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(() -> super.any(predicate)).thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	//endregion
@@ -180,7 +181,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #hasDuplicates(SqlFunction)
 	 */
 	public CompletableFuture<Void> hasDuplicatesAsync(SqlFunction<T, ?> column, Consumer<? super Boolean> callback) {
-		return CompletableFuture.supplyAsync(() -> super.hasDuplicates(column)).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(() -> super.hasDuplicates(column)).thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	//endregion
@@ -196,7 +197,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #getSingle(SqlPredicate)
 	 */
 	public CompletableFuture<Void> getSingleAsync(SqlPredicate<T> predicate, Consumer<? super Optional<T>> callback) {
-		return CompletableFuture.supplyAsync(() -> super.getSingle(predicate)).thenAcceptAsync(callback);
+		return AsyncExecutor.supplyAsync(() -> super.getSingle(predicate)).thenAcceptAsync(callback, AsyncExecutor.getExecutor());
 	}
 
 	/**
@@ -300,7 +301,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #update(BaseEntity)
 	 */
 	public CompletableFuture<Void> updateAsync(T instance, Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.update(instance), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.update(instance), exceptionHandling));
 	}
 
 	/**
@@ -348,7 +349,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #update(List)
 	 */
 	public CompletableFuture<Void> updateAsync(List<T> instances, Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.update(instances), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.update(instances), exceptionHandling));
 	}
 
 	/**
@@ -406,7 +407,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #update(SqlPredicate, SqlFunction, Object)
 	 */
 	public <R> CompletableFuture<Void> updateAsync(SqlPredicate<T> condition, SqlFunction<T, R> column, R newValue, Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.update(condition, column, newValue), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.update(condition, column, newValue), exceptionHandling));
 	}
 
 	//endregion
@@ -433,7 +434,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #delete(BaseEntity)
 	 */
 	public CompletableFuture<Void> deleteAsync(T instance, Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.delete(instance), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.delete(instance), exceptionHandling));
 	}
 
 	/**
@@ -456,7 +457,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #delete(long)
 	 */
 	public CompletableFuture<Void> deleteAsync(long id, Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.delete(id), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.delete(id), exceptionHandling));
 	}
 
 	/**
@@ -479,7 +480,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #delete(List)
 	 */
 	public CompletableFuture<Void> deleteAsync(List<T> entities, Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.delete(entities), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.delete(entities), exceptionHandling));
 	}
 
 	/**
@@ -504,7 +505,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public CompletableFuture<Void> deleteAsync(Consumer<SQLException> exceptionHandling, T... entities) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.delete(Arrays.asList(entities)), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.delete(Arrays.asList(entities)), exceptionHandling));
 	}
 
 	/**
@@ -527,7 +528,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #delete(long...)
 	 */
 	public CompletableFuture<Void> deleteAsync(Consumer<SQLException> exceptionHandling, long... ids) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.delete(ids), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.delete(ids), exceptionHandling));
 	}
 
 	/**
@@ -550,7 +551,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #delete(SqlPredicate)
 	 */
 	public CompletableFuture<Void> deleteAsync(SqlPredicate<T> predicate, Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.runAsync(runnableHandling(() -> super.delete(predicate), exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(() -> super.delete(predicate), exceptionHandling));
 	}
 
 	/**
@@ -571,7 +572,7 @@ public class AsyncBaseService<T extends BaseEntity> extends BaseService<T> {
 	 * @see #truncateTable()
 	 */
 	public CompletableFuture<Void> truncateTableAsync(Consumer<SQLException> exceptionHandling) {
-		return CompletableFuture.runAsync(runnableHandling(super::truncateTable, exceptionHandling));
+		return AsyncExecutor.runAsync(runnableHandling(super::truncateTable, exceptionHandling));
 	}
 
 	//endregion
@@ -3,6 +3,9 @@ package com.github.collinalpert.java2db.services;
 import com.github.collinalpert.java2db.entities.BaseCodeAndDescriptionDeletableEntity;
 import com.github.collinalpert.java2db.queries.EntityQuery;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -14,6 +17,27 @@ import java.util.Optional;
  */
 public class BaseCodeAndDescriptionDeletableService<T extends BaseCodeAndDescriptionDeletableEntity> extends BaseDeletableService<T> {
 
+	/**
+	 * The in-memory copy of the table, or {@code null} if mirroring is not enabled.
+	 */
+	private volatile TableMirror<T> mirror;
+
+	/**
+	 * Enables mirroring for this service. This is meant for small lookup tables which are read very often.
+	 * All rows of the table are then held in memory and {@link #getAll()}, {@link #getById(long)}, {@link #getByCode(String)},
+	 * {@link #count()} and {@link #any()} are answered from there without querying the database.
+	 * After the refresh interval has passed, the rows are reloaded in the background. After the table was changed through this service,
+	 * they are reloaded the next time they are needed.
+	 * <p>
+	 * {@link #getByCode(String)} looks a code up exactly as it is stored. If it is not found in memory, the database is queried,
+	 * since the collation of the code column may match a differently spelled code, for example in a different case.
+	 *
+	 * @param refreshInterval The duration after which the rows are reloaded from the database.
+	 */
+	protected final void enableMirror(Duration refreshInterval) {
+		this.mirror = new TableMirror<>(this, BaseCodeAndDescriptionDeletableEntity::getCode, refreshInterval);
+	}
+
 	/**
 	 * Retrieves an entry from a table based on its unique code.
 	 *
@@ -21,7 +45,7 @@ public class BaseCodeAndDescriptionDeletableService<T extends BaseCodeAndDescrip
 	 * @return An entity matching this code. It is assumed that a code, just like the id, is unique in a table.
 	 */
 	public Optional<T> getByCode(String code) {
-		return getSingle(x -> x.getCode() == code);
+		return TableMirror.getByCode(this.mirror, code, () -> getSingle(x -> x.getCode() == code));
 	}
 
 	/**
@@ -33,4 +57,60 @@ public class BaseCodeAndDescriptionDeletableService<T extends BaseCodeAndDescrip
 	public EntityQuery<T> getByDescription(String description) {
 		return getMultiple(x -> x.getDescription() == description);
 	}
+
+	/**
+	 * @param id The id of the desired entity.
+	 * @return Gets an entity by its id. If mirroring is enabled, it is taken from memory.
+	 */
+	@Override
+	public Optional<T> getById(long id) {
+		return TableMirror.query(this.mirror, mirror -> mirror.getById(id), () -> super.getById(id));
+	}
+
+	/**
+	 * @return All entities in this table. If mirroring is enabled, they are taken from memory.
+	 */
+	@Override
+	public List<T> getAll() {
+		return TableMirror.query(this.mirror, TableMirror::getAll, super::getAll);
+	}
+
+	/**
+	 * @return The number of rows in this table. If mirroring is enabled, the rows in memory are counted.
+	 */
+	@Override
+	public long count() {
+		return TableMirror.query(this.mirror, TableMirror::count, super::count);
+	}
+
+	/**
+	 * @return {@code True} if at least one row exists in this table, {@code false} if not. If mirroring is enabled, the rows in memory are checked.
+	 */
+	@Override
+	public boolean any() {
+		return TableMirror.query(this.mirror, TableMirror::any, super::any);
+	}
+
+	/**
+	 * Invalidates the caches of this service, including the mirrored rows if mirroring is enabled.
+	 */
+	@Override
+	public void invalidateEntityCache() {
+		super.invalidateEntityCache();
+		TableMirror.invalidate(this.mirror);
+	}
+
+	/**
+	 * Invalidates the caches of multiple entities, including the mirrored rows if mirroring is enabled.
+	 * The mirrored rows are reloaded once, no matter how many entities have changed.
+	 *
+	 * @param ids The ids of the entities which have changed.
+	 */
+	@Override
+	public void invalidateEntityCache(Collection<Long> ids) {
+		super.invalidateEntityCache(ids);
+		if (!ids.isEmpty()) {
+			TableMirror.invalidate(this.mirror);
+		}
+	}
 }
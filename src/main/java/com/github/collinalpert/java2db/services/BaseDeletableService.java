@@ -2,8 +2,9 @@ package com.github.collinalpert.java2db.services;
 
 import com.github.collinalpert.java2db.database.DBConnection;
 import com.github.collinalpert.java2db.entities.BaseDeletableEntity;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+import com.github.collinalpert.java2db.modules.LambdaModule;
 import com.github.collinalpert.java2db.modules.LoggingModule;
-import com.github.collinalpert.lambda2sql.Lambda2Sql;
 import com.github.collinalpert.lambda2sql.functions.SqlFunction;
 import com.github.collinalpert.lambda2sql.functions.SqlPredicate;
 
@@ -11,7 +12,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.StringJoiner;
+import java.util.stream.Collectors;
 
 /**
  * Describes a service class for an entity which contains an id and an isDeleted flag.
@@ -22,9 +23,11 @@ import java.util.StringJoiner;
  */
 public class BaseDeletableService<T extends BaseDeletableEntity> extends BaseService<T> {
 
+	private static final LambdaModule lambdaModule;
 	private static final LoggingModule loggingModule;
 
 	static {
+		lambdaModule = new LambdaModule();
 		loggingModule = new LoggingModule();
 	}
 
@@ -60,15 +63,16 @@ public class BaseDeletableService<T extends BaseDeletableEntity> extends BaseSer
 	 */
 	@Override
 	public void delete(List<T> entities) throws SQLException {
-		var joiner = new StringJoiner(", ", "(", ")");
-		for (T entity : entities) {
-			joiner.add(Long.toString(entity.getId()));
+		var ids = new Object[entities.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = entities.get(i).getId();
 		}
 
-		var joinedIds = joiner.toString();
 		try (var connection = new DBConnection()) {
-			connection.update(String.format("update `%s` set %s = 1 where `%s`.`id` in %s", this.tableName, Lambda2Sql.toSql(this.isDeletedFunc, this.tableName), this.tableName, joinedIds));
-			loggingModule.logf("%s with ids %s successfully soft deleted!", this.type.getSimpleName(), joinedIds);
+			connection.update(String.format("update `%s` set %s = 1 where `%s`.`id` in %s", this.tableName, lambdaModule.toSql(this.isDeletedFunc, this.tableName).getSql(), this.tableName, createPlaceholders(ids.length)), ids);
+			invalidateEntityCache(entities.stream().map(BaseEntity::getId).collect(Collectors.toList()));
+
+			loggingModule.logf("%s with ids %s successfully soft deleted!", this.type.getSimpleName(), Arrays.toString(ids));
 		}
 	}
 
@@ -108,9 +112,11 @@ public class BaseDeletableService<T extends BaseDeletableEntity> extends BaseSer
 	 */
 	@Override
 	public void delete(SqlPredicate<T> predicate) throws SQLException {
-		var query = String.format("update %s set %s = 1 where %s", super.tableName, Lambda2Sql.toSql(this.isDeletedFunc, super.tableName), Lambda2Sql.toSql(predicate));
+		var condition = lambdaModule.toSql(predicate, super.tableName);
+		var query = String.format("update `%s` set %s = 1 where %s", super.tableName, lambdaModule.toSql(this.isDeletedFunc, super.tableName).getSql(), condition.getSql());
 		try (var connection = new DBConnection()) {
-			connection.update(query);
+			connection.update(query, condition.getParameters());
+			invalidateEntityCache();
 			loggingModule.logf("%s successfully soft deleted!", this.type.getSimpleName());
 		}
 	}
@@ -1,35 +1,43 @@
 package com.github.collinalpert.java2db.services;
 
+import com.github.collinalpert.java2db.annotations.Cacheable;
 import com.github.collinalpert.java2db.annotations.DefaultIfNull;
+import com.github.collinalpert.java2db.database.ColumnMetadata;
 import com.github.collinalpert.java2db.database.DBConnection;
+import com.github.collinalpert.java2db.database.EntityMetadata;
 import com.github.collinalpert.java2db.entities.BaseEntity;
-import com.github.collinalpert.java2db.exceptions.IllegalEntityFieldAccessException;
 import com.github.collinalpert.java2db.mappers.BaseMapper;
 import com.github.collinalpert.java2db.mappers.Mappable;
-import com.github.collinalpert.java2db.modules.AnnotationModule;
-import com.github.collinalpert.java2db.modules.FieldModule;
+import com.github.collinalpert.java2db.mappers.MappingPlan;
+import com.github.collinalpert.java2db.modules.CachingModule;
+import com.github.collinalpert.java2db.modules.LambdaModule;
 import com.github.collinalpert.java2db.modules.LoggingModule;
-import com.github.collinalpert.java2db.modules.TableModule;
+import com.github.collinalpert.java2db.modules.QueryCacheModule;
 import com.github.collinalpert.java2db.pagination.CacheablePaginationResult;
 import com.github.collinalpert.java2db.pagination.PaginationResult;
 import com.github.collinalpert.java2db.queries.EntityQuery;
+import com.github.collinalpert.java2db.queries.FetchPlan;
 import com.github.collinalpert.java2db.queries.OrderTypes;
+import com.github.collinalpert.java2db.queries.SqlFragment;
 import com.github.collinalpert.java2db.utilities.IoC;
 import com.github.collinalpert.lambda2sql.Lambda2Sql;
 import com.github.collinalpert.lambda2sql.functions.SqlFunction;
 import com.github.collinalpert.lambda2sql.functions.SqlPredicate;
 
-import java.lang.reflect.Field;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.ParameterizedType;
 import java.sql.SQLException;
 import java.time.Duration;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.StringJoiner;
 import java.util.stream.Collectors;
@@ -41,22 +49,17 @@ import java.util.stream.Collectors;
  */
 public class BaseService<T extends BaseEntity> {
 
-	private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-	private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
-	private static final AnnotationModule annotationModule;
-	private static final FieldModule fieldModule;
-	private static final TableModule tableModule;
+	private static final LambdaModule lambdaModule;
 	/**
 	 * The logger used to log queries and messages to the console.
 	 */
 	private static final LoggingModule loggingModule;
+	private static final QueryCacheModule queryCacheModule;
 
 	static {
-		annotationModule = new AnnotationModule();
-		fieldModule = new FieldModule();
-		tableModule = new TableModule();
+		lambdaModule = new LambdaModule();
 		loggingModule = new LoggingModule();
+		queryCacheModule = new QueryCacheModule();
 	}
 
 	/**
@@ -80,22 +83,145 @@ public class BaseService<T extends BaseEntity> {
 	 */
 	private final String idAccess;
 
+	/**
+	 * The cached information about the columns of the entity this service corresponds to.
+	 */
+	private final EntityMetadata metadata;
+
+	/**
+	 * The cache for entities read by their id, or {@code null} if the entity cache is not enabled.
+	 */
+	private volatile CachingModule<Optional<T>> entityCache;
+
+	/**
+	 * The cache for entities read using {@link #getSingle(SqlPredicate)}, keyed by the condition.
+	 * Since it is not known which entities a change affects, it is cleared on every change.
+	 */
+	private volatile CachingModule<Optional<T>> singleEntityCache;
+
+	private volatile Duration entityCacheExpiration;
+
+	/**
+	 * The plan which decides which foreign key entities are joined by the queries of this service.
+	 */
+	private volatile FetchPlan<T> fetchPlan;
+
 	/**
 	 * Constructor for the base class of all services. It is not possible to create instances of it.
 	 */
 	protected BaseService() {
 		this.type = getGenericType();
 		this.mapper = IoC.resolveMapper(this.type, new BaseMapper<>(this.type));
-		this.tableName = tableModule.getTableName(this.type);
+		this.metadata = EntityMetadata.of(this.type);
+		this.tableName = this.metadata.getTableName();
+		this.fetchPlan = FetchPlan.of(this.type);
 
 		final SqlFunction<T, Long> idFunc = BaseEntity::getId;
 		this.idAccess = Lambda2Sql.toSql(idFunc, this.tableName);
+
+		var cacheable = this.type.getAnnotation(Cacheable.class);
+		if (cacheable != null) {
+			enableEntityCache(Duration.ofSeconds(cacheable.expiration()), cacheable.maximumSize());
+		}
+	}
+
+	/**
+	 * Enables the entity cache for this service. This is the equivalent to annotating the entity with {@link Cacheable}.
+	 * Entities which are read using {@link #getById(long)} or {@link #getSingle(SqlPredicate)} are kept in memory and returned from there
+	 * until they expire or are changed through this service. Every call returns a copy of the cached entity, so changing it does not affect the cache.
+	 * Changes to the table which are not made through this service are not detected, so the expiration should be chosen accordingly.
+	 *
+	 * @param expiration  The duration an entity is cached for.
+	 * @param maximumSize The maximum amount of cached entities.
+	 */
+	protected final void enableEntityCache(Duration expiration, int maximumSize) {
+		this.entityCacheExpiration = expiration;
+		this.singleEntityCache = new CachingModule<>(maximumSize);
+		this.entityCache = new CachingModule<>(maximumSize);
+	}
+
+	/**
+	 * Sets the plan which decides which foreign key entities are joined by the queries of this service, including the ones created using {@link #createQuery()}.
+	 * Per default, all foreign key entities are joined. A single query can still change its plan, for example using {@link EntityQuery#include(SqlFunction)}.
+	 * Since cached entities may have been read using the previous plan, the entity cache is cleared.
+	 *
+	 * @param fetchPlan The default plan for the queries of this service.
+	 */
+	protected final void setDefaultFetchPlan(FetchPlan<T> fetchPlan) {
+		if (fetchPlan == null) {
+			throw new IllegalArgumentException("The fetch plan of a service cannot be null.");
+		}
+
+		this.fetchPlan = fetchPlan;
+		invalidateEntityCache();
+	}
+
+	/**
+	 * Removes all entities from the entity cache, if it is enabled, and invalidates all cached query results which were read from this table.
+	 * This is necessary when the table has been changed without using this service.
+	 */
+	public void invalidateEntityCache() {
+		queryCacheModule.invalidate(this.tableName);
+		var cache = this.entityCache;
+		if (cache != null) {
+			cache.invalidate();
+			this.singleEntityCache.invalidate();
+		}
+	}
+
+	/**
+	 * Removes an entity from the entity cache, if it is enabled, and invalidates all cached query results which were read from this table.
+	 *
+	 * @param id The id of the entity to remove.
+	 */
+	public void invalidateEntityCache(long id) {
+		invalidateEntityCache(List.of(id));
+	}
+
+	/**
+	 * Removes multiple entities from the entity cache, if it is enabled, and invalidates all cached query results which were read from this table.
+	 * This is used by operations changing multiple entities, so the caches which are cleared on every change are only cleared once.
+	 *
+	 * @param ids The ids of the entities to remove.
+	 */
+	public void invalidateEntityCache(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+
+		queryCacheModule.invalidate(this.tableName);
+		var cache = this.entityCache;
+		if (cache != null) {
+			for (var id : ids) {
+				cache.invalidate(Long.toString(id));
+			}
+
+			this.singleEntityCache.invalidate();
+		}
+	}
+
+	/**
+	 * Reads an entity using the entity cache, if it is enabled.
+	 * The cache holds its own copy of the entity and every caller receives a new copy of it.
+	 *
+	 * @param cache The cache to read from.
+	 * @param key   The key of the entity in the cache.
+	 * @param query The query reading the entity, in case it is not in the cache.
+	 * @return The entity, if it exists.
+	 */
+	private Optional<T> getCached(CachingModule<Optional<T>> cache, String key, EntityQuery<T> query) {
+		if (cache == null) {
+			return query.getFirst();
+		}
+
+		return cache.getOrAdd(key, () -> query.getFirst().map(this.metadata::copy), this.entityCacheExpiration).map(this.metadata::copy);
 	}
 
 	//region Create
 
 	/**
 	 * Creates this Java entity on the database.
+	 * The id generated by the database is set in the entity. If the database does not generate an id, the entity is left unchanged.
 	 *
 	 * @param instance The instance to create on the database.
 	 * @return The id of the newly created record.
@@ -104,22 +230,18 @@ public class BaseService<T extends BaseEntity> {
 	 */
 	public long create(T instance) throws SQLException {
 		var insertQuery = createInsertHeader();
-		var joiner = new StringJoiner(", ", "(", ");");
-		fieldModule.getEntityFields(instance.getClass(), BaseEntity.class).forEach(field -> {
-			field.setAccessible(true);
-			if (getFieldValue(field, instance) == null && annotationModule.hasAnnotation(field, DefaultIfNull.class, DefaultIfNull::onCreate)) {
-				joiner.add("default");
-				return;
-			}
+		var parameters = new ArrayList<>();
+		insertQuery.append(createInsertRow(instance, parameters)).append(";");
+		try (var connection = new DBConnection()) {
+			var id = connection.update(insertQuery.toString(), parameters.toArray());
 
-			joiner.add(getSqlValue(field, instance));
-		});
+			// An entity without a generated id cannot be updated or cached by its id, so it is left as it is.
+			if (id > 0) {
+				instance.setId(id);
+				this.metadata.takeSnapshot(instance);
+				invalidateEntityCache(id);
+			}
 
-		//For using the default database setting for the id.
-		joiner.add("default");
-		insertQuery.append(joiner.toString());
-		try (var connection = new DBConnection()) {
-			var id = connection.update(insertQuery.toString());
 			loggingModule.logf("%s successfully created!", this.type.getSimpleName());
 			return id;
 		}
@@ -142,6 +264,9 @@ public class BaseService<T extends BaseEntity> {
 	 * Creates multiple entities on the database.
 	 * It is recommended to use this method instead of iterating over the list and
 	 * calling a normal {@link #create(BaseEntity)} on each entity separately.
+	 * The entities are sent to the database in batches of at most {@link DBConnection#BATCH_SIZE} rows or {@link DBConnection#MAX_BATCH_BYTES} bytes.
+	 * All batches are created in one transaction, so either all entities are created or none.
+	 * The ids generated by the database are set in the entities.
 	 *
 	 * @param instances The list of entities to create on the database.
 	 * @throws SQLException if the query cannot be executed due to database constraints
@@ -152,35 +277,94 @@ public class BaseService<T extends BaseEntity> {
 			return;
 		}
 
-		var insertQuery = createInsertHeader();
-		var rows = new String[instances.size()];
-		StringJoiner joiner;
-		for (int i = 0, instancesSize = instances.size(); i < instancesSize; i++) {
-			var entityFields = fieldModule.getEntityFields(instances.get(i).getClass(), BaseEntity.class);
-			joiner = new StringJoiner(", ", "(", ")");
-			for (var entityField : entityFields) {
-				entityField.setAccessible(true);
-				var instance = instances.get(i);
-				if (getFieldValue(entityField, instance) == null && annotationModule.hasAnnotation(entityField, DefaultIfNull.class, DefaultIfNull::onCreate)) {
-					joiner.add("default");
-					return;
+		var start = System.nanoTime();
+		var generatedIds = new IdentityHashMap<T, Long>(instances.size() * 4 / 3 + 1);
+		try (var connection = new DBConnection()) {
+			connection.runInTransaction(() -> {
+				var batch = new ArrayList<T>();
+				var batchBytes = 0L;
+				for (var instance : instances) {
+					var rowBytes = estimateRowSize(instance);
+					if (!batch.isEmpty() && (batch.size() >= DBConnection.BATCH_SIZE || batchBytes + rowBytes > DBConnection.MAX_BATCH_BYTES)) {
+						createBatch(connection, batch, generatedIds);
+						batch.clear();
+						batchBytes = 0;
+					}
+
+					batch.add(instance);
+					batchBytes += rowBytes;
 				}
 
-				joiner.add(getSqlValue(entityField, instance));
-			}
+				createBatch(connection, batch, generatedIds);
+			});
+		}
 
-			//For using the default database setting for the id.
-			joiner.add("default");
-			rows[i] = joiner.toString();
+		// The ids are only set once the transaction has been committed, so a failed creation does not leave ids of rows which were rolled back.
+		generatedIds.forEach(BaseEntity::setId);
+		var ids = new ArrayList<Long>(generatedIds.size());
+		for (var instance : generatedIds.keySet()) {
+			this.metadata.takeSnapshot(instance);
+			ids.add(instance.getId());
 		}
 
-		insertQuery.append(String.join(", ", rows));
-		try (var connection = new DBConnection()) {
-			connection.update(insertQuery.toString());
-			loggingModule.logf("%s entities were successfully created.", this.type.getSimpleName());
+		invalidateEntityCache(ids);
+
+		var elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		loggingModule.logf("%d %s entities were successfully created in %d ms (%d rows/s).", instances.size(), this.type.getSimpleName(), elapsedMillis, instances.size() * 1000L / elapsedMillis);
+	}
+
+	/**
+	 * Inserts a batch of entities and collects their generated ids.
+	 * Entities which use the database-default for different columns result in different INSERT statements, so they are inserted in separate groups.
+	 *
+	 * @param connection   The connection to insert the entities with.
+	 * @param batch        The entities to insert.
+	 * @param generatedIds The generated ids of the inserted entities, to which the ids of this batch are added.
+	 * @throws SQLException if the entities cannot be inserted.
+	 */
+	private void createBatch(DBConnection connection, List<T> batch, Map<T, Long> generatedIds) throws SQLException {
+		var groups = new LinkedHashMap<String, List<T>>();
+		var parameterGroups = new HashMap<String, List<Object[]>>();
+		for (var instance : batch) {
+			var parameters = new ArrayList<>();
+			var row = createInsertRow(instance, parameters);
+			groups.computeIfAbsent(row, r -> new ArrayList<>()).add(instance);
+			parameterGroups.computeIfAbsent(row, r -> new ArrayList<>()).add(parameters.toArray());
+		}
+
+		for (var group : groups.entrySet()) {
+			var ids = connection.updateBatch(createInsertHeader().append(group.getKey()).toString(), parameterGroups.get(group.getKey()));
+			var entities = group.getValue();
+			for (int i = 0; i < ids.length; i++) {
+				if (ids[i] > 0) {
+					generatedIds.put(entities.get(i), ids[i]);
+				}
+			}
 		}
 	}
 
+	/**
+	 * Estimates how many bytes the values of an entity take up when they are sent to the database.
+	 *
+	 * @param instance The entity to estimate the size of.
+	 * @return The approximate size of the entity's values in bytes.
+	 */
+	private long estimateRowSize(T instance) {
+		var size = 0L;
+		for (var column : this.metadata.getColumnsWithoutId()) {
+			var value = column.getValue(instance);
+			if (value instanceof CharSequence) {
+				size += ((CharSequence) value).length() * 3L;
+			} else if (value instanceof byte[]) {
+				size += ((byte[]) value).length;
+			} else {
+				size += 8;
+			}
+		}
+
+		return size;
+	}
+
 	//endregion
 
 	//region Read
@@ -204,8 +388,9 @@ public class BaseService<T extends BaseEntity> {
 	 * @return The number of rows matching the condition.
 	 */
 	public long count(SqlPredicate<T> predicate) {
+		var condition = lambdaModule.toSql(predicate, this.tableName);
 		try (var connection = new DBConnection()) {
-			try (var result = connection.execute(String.format("select count(%s) from `%s` where %s;", this.idAccess, this.tableName, Lambda2Sql.toSql(predicate, this.tableName)))) {
+			try (var result = connection.execute(String.format("select count(%s) from `%s` where %s;", this.idAccess, this.tableName, condition.getSql()), condition.getParameters())) {
 				if (result.next()) {
 					return result.getLong(String.format("count(%s)", this.idAccess));
 				}
@@ -238,8 +423,9 @@ public class BaseService<T extends BaseEntity> {
 	 * @return {@code True} if the predicate matches one or more records, {@code false} if not.
 	 */
 	public boolean any(SqlPredicate<T> predicate) {
+		var condition = lambdaModule.toSql(predicate, this.tableName);
 		try (var connection = new DBConnection()) {
-			try (var result = connection.execute(String.format("select exists(select %s from `%s` where %s limit 1) as result;", this.idAccess, this.tableName, Lambda2Sql.toSql(predicate, this.tableName)))) {
+			try (var result = connection.execute(String.format("select exists(select %s from `%s` where %s limit 1) as result;", this.idAccess, this.tableName, condition.getSql()), condition.getParameters())) {
 				if (result.next()) {
 					return result.getInt("result") == 1;
 				}
@@ -263,7 +449,7 @@ public class BaseService<T extends BaseEntity> {
 	 * @return {@code True} if there is at least one duplicate value in the specified column, {@code false} otherwise.
 	 */
 	public boolean hasDuplicates(SqlFunction<T, ?> column) {
-		var sqlColumn = Lambda2Sql.toSql(column, this.tableName);
+		var sqlColumn = lambdaModule.toSql(column, this.tableName).getSql();
 		try (var connection = new DBConnection()) {
 			try (var result = connection.execute(String.format("select %s from `%s` group by %s having count(%s) > 1", sqlColumn, this.tableName, sqlColumn, sqlColumn))) {
 				return result.next();
@@ -284,7 +470,7 @@ public class BaseService<T extends BaseEntity> {
 	 * {@link #getSingle(SqlPredicate)}, {@link #getMultiple(SqlPredicate)} or {@link #getAll()} methods.
 	 */
 	protected EntityQuery<T> createQuery() {
-		return new EntityQuery<>(this.type, this.mapper);
+		return new EntityQuery<>(this.type, this.mapper).fetch(this.fetchPlan);
 	}
 
 	/**
@@ -294,7 +480,13 @@ public class BaseService<T extends BaseEntity> {
 	 * @return An entity matching the result of the query.
 	 */
 	public Optional<T> getSingle(SqlPredicate<T> predicate) {
-		return createQuery().where(predicate).getFirst();
+		var cache = this.singleEntityCache;
+		if (cache == null) {
+			return createQuery().where(predicate).getFirst();
+		}
+
+		var condition = lambdaModule.toSql(predicate, this.tableName);
+		return getCached(cache, condition.toCacheKey(), createQuery().where(predicate));
 	}
 
 	/**
@@ -312,7 +504,7 @@ public class BaseService<T extends BaseEntity> {
 	 * @return Gets an entity by its id.
 	 */
 	public Optional<T> getById(long id) {
-		return getSingle(x -> x.getId() == id);
+		return getCached(this.entityCache, Long.toString(id), createQuery().where(x -> x.getId() == id));
 	}
 
 	/**
@@ -368,24 +560,122 @@ public class BaseService<T extends BaseEntity> {
 
 	//endregion EntityQuery
 
+	//region Lazy columns
+
+	/**
+	 * Loads the value of a column marked with the {@link com.github.collinalpert.java2db.annotations.Lazy} annotation for a single entity.
+	 *
+	 * @param entity The entity to load the column for.
+	 * @param column The column to load, for example {@code Article::getBody}.
+	 * @see #loadLazy(List, SqlFunction)
+	 */
+	public void loadLazy(T entity, SqlFunction<T, ?> column) {
+		loadLazy(List.of(entity), column);
+	}
+
+	/**
+	 * Loads the values of a column marked with the {@link com.github.collinalpert.java2db.annotations.Lazy} annotation for multiple entities.
+	 * The values are read in chunks of {@link DBConnection#FETCH_BATCH_SIZE} entities per query and are then set in the entities.
+	 * Loading a column does not count as a change, so it is not written to the database when the entity is updated.
+	 * This also loads columns which were left out using {@link EntityQuery#select(SqlFunction[])}, which can be updated afterwards.
+	 *
+	 * @param entities The entities to load the column for.
+	 * @param column   The column to load, for example {@code Article::getBody}.
+	 * @throws IllegalArgumentException if the function does not return a column of the entity or the values cannot be read.
+	 */
+	public void loadLazy(List<T> entities, SqlFunction<T, ?> column) {
+		var columnMetadata = lambdaModule.toColumn(column, this.metadata);
+		var entitiesById = new LinkedHashMap<Long, List<T>>();
+		for (var entity : entities) {
+			entitiesById.computeIfAbsent(entity.getId(), id -> new ArrayList<>(1)).add(entity);
+		}
+
+		if (entitiesById.isEmpty()) {
+			return;
+		}
+
+		var ids = new ArrayList<>(entitiesById.keySet());
+		var chunkSize = Math.max(1, DBConnection.FETCH_BATCH_SIZE);
+		var mapping = new MappingPlan.ColumnMapping(2, columnMetadata);
+		try (var connection = new DBConnection()) {
+			for (int i = 0; i < ids.size(); i += chunkSize) {
+				var chunk = ids.subList(i, Math.min(i + chunkSize, ids.size()));
+				var query = String.format("select %s, `%s`.`%s` from `%s` where %s in %s", this.idAccess, this.tableName, columnMetadata.getColumnName(), this.tableName, this.idAccess, createPlaceholders(chunk.size()));
+				try (var set = connection.execute(query, chunk.toArray())) {
+					while (set.next()) {
+						for (var entity : entitiesById.get(set.getLong(1))) {
+							mapping.read(set, entity);
+							this.metadata.takeSnapshot(entity, columnMetadata);
+						}
+					}
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new IllegalArgumentException(String.format("Could not load column %s on table %s.", columnMetadata.getColumnName(), this.tableName));
+		}
+	}
+
+	/**
+	 * Opens a stream of the value of a column, which is meant for large {@code BLOB} columns. The value is read from the database
+	 * while the stream is consumed, as far as the driver supports it, instead of being loaded into memory at once.
+	 * The stream holds on to its database connection until it is closed, so it should be used in a try-with-resources statement.
+	 *
+	 * @param id     The id of the entity to read the column of.
+	 * @param column The column to read, for example {@code Document::getContent}.
+	 * @return The value of the column as a stream, or {@link Optional#empty()} if the entity does not exist or the value is {@code null}.
+	 * @throws IllegalArgumentException if the function does not return a column of the entity or the value cannot be read.
+	 */
+	public Optional<InputStream> openStream(long id, SqlFunction<T, ?> column) {
+		var columnMetadata = lambdaModule.toColumn(column, this.metadata);
+		var connection = new DBConnection();
+		try {
+			var set = connection.executeStreaming(String.format("select `%s`.`%s` from `%s` where %s = ?", this.tableName, columnMetadata.getColumnName(), this.tableName, this.idAccess), id);
+			var stream = set.next() ? set.getBinaryStream(1) : null;
+			if (stream == null) {
+				connection.close();
+				return Optional.empty();
+			}
+
+			return Optional.of(new FilterInputStream(stream) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						connection.close();
+					}
+				}
+			});
+		} catch (SQLException e) {
+			connection.close();
+			e.printStackTrace();
+			throw new IllegalArgumentException(String.format("Could not read column %s on table %s.", columnMetadata.getColumnName(), this.tableName));
+		}
+	}
+
+	//endregion
+
 	//region Pagination
 
 	/**
 	 * Creates a pagination structure that splits the entire table into multiple pages.
 	 * Note that the query to the database for each page is only executed when that specific page is requested and
 	 * <em>not</em> when this method is called.
+	 * The rows are not counted until the number of pages is requested.
 	 *
 	 * @param entriesPerPage The number of entries to be displayed on each page.
 	 * @return A pagination which splits up an entire table into multiple pages.
 	 */
 	public PaginationResult<T> createPagination(int entriesPerPage) {
-		return new PaginationResult<>(createPaginationQueries(entriesPerPage));
+		return new PaginationResult<>(this::createQuery, entriesPerPage);
 	}
 
 	/**
 	 * Creates a pagination structure that splits the result of a query into multiple pages.
 	 * Note that the query to the database for each page is only executed when that specific page is requested and
 	 * <em>not</em> when this method is called.
+	 * The rows are not counted until the number of pages is requested.
 	 * The predicate to filter by.
 	 *
 	 * @param predicate      The predicate to filter by.
@@ -393,13 +683,14 @@ public class BaseService<T extends BaseEntity> {
 	 * @return A pagination which splits the result of a condition into multiple pages.
 	 */
 	public PaginationResult<T> createPagination(SqlPredicate<T> predicate, int entriesPerPage) {
-		return new PaginationResult<>(createPaginationQueries(predicate, entriesPerPage));
+		return new PaginationResult<>(() -> getMultiple(predicate), entriesPerPage);
 	}
 
 	/**
 	 * Creates a pagination structure that splits the entire table into multiple pages.
 	 * Note that the query to the database for each page is only executed when that specific page is requested and
 	 * <em>not</em> when this method is called.
+	 * The rows are not counted until the number of pages is requested.
 	 * When pages are retrieved, they are stored in a cache, so they can be
 	 * retrieved from there the next time they are requested. Note that this will work, until the specified {@code cacheExpiration}
 	 * is up. After that, the next time a page is requested, it will be reloaded from the database.
@@ -410,13 +701,14 @@ public class BaseService<T extends BaseEntity> {
 	 * @return A pagination which displays a entire table
 	 */
 	public CacheablePaginationResult<T> createPagination(int entriesPerPage, Duration cacheExpiration) {
-		return new CacheablePaginationResult<>(createPaginationQueries(entriesPerPage), cacheExpiration);
+		return new CacheablePaginationResult<>(this::createQuery, entriesPerPage, cacheExpiration);
 	}
 
 	/**
 	 * Creates a cached pagination structure that splits the result of a query into multiple pages.
 	 * Note that the query to the database for each page is only executed when that specific page is requested and
 	 * <em>not</em> when this method is called.
+	 * The rows are not counted until the number of pages is requested.
 	 * When pages are retrieved, they are stored in a cache, so they can be
 	 * retrieved from there the next time they are requested. Note that this will work, until the specified {@code cacheExpiration}
 	 * is up. After that, the next time a page is requested, it will be reloaded from the database.
@@ -428,7 +720,7 @@ public class BaseService<T extends BaseEntity> {
 	 * @return A pagination which allows the developer to retrieve specific pages from the result.
 	 */
 	public CacheablePaginationResult<T> createPagination(SqlPredicate<T> predicate, int entriesPerPage, Duration cacheExpiration) {
-		return new CacheablePaginationResult<>(createPaginationQueries(predicate, entriesPerPage), cacheExpiration);
+		return new CacheablePaginationResult<>(() -> getMultiple(predicate), entriesPerPage, cacheExpiration);
 	}
 
 	//endregion
@@ -439,14 +731,28 @@ public class BaseService<T extends BaseEntity> {
 
 	/**
 	 * Updates this entity's row on the database.
+	 * If the entity was read from the database, only the columns which have changed since then are written.
+	 * If none have changed, no statement is executed at all.
 	 *
 	 * @param instance The instance to update on the database.
-	 * @throws SQLException if the query cannot be executed due to database constraints
-	 *                      i.e. non-existing default value for field or an incorrect data type.
+	 * @throws SQLException          if the query cannot be executed due to database constraints
+	 *                               i.e. non-existing default value for field or an incorrect data type.
+	 * @throws IllegalStateException if a column which was not selected when the entity was read has been changed.
 	 */
 	public void update(T instance) throws SQLException {
+		var changedColumns = this.metadata.getChangedColumns(instance);
+		if (changedColumns.isEmpty()) {
+			loggingModule.logf("%s with id %d has no changes to update.", this.type.getSimpleName(), instance.getId());
+			return;
+		}
+
+		checkLoaded(instance, changedColumns);
+
+		var query = updateQuery(instance, changedColumns);
 		try (var connection = new DBConnection()) {
-			connection.update(updateQuery(instance));
+			connection.update(query.getSql(), query.getParameters());
+			this.metadata.takeSnapshot(instance);
+			invalidateEntityCache(instance.getId());
 			loggingModule.logf("%s with id %d was successfully updated.", this.type.getSimpleName(), instance.getId());
 		}
 	}
@@ -467,31 +773,95 @@ public class BaseService<T extends BaseEntity> {
 	/**
 	 * Updates multiple entity's rows on the database. This method only opens one connection to the database as oppose
 	 * to when calling the {@link #update(BaseEntity)} method in a for loop, which opens a new connection for every entity.
+	 * The updates are sent to the database in batches of at most {@link DBConnection#BATCH_SIZE} entities in one transaction.
+	 * Like with {@link #update(BaseEntity)}, only changed columns are written and entities without changes are skipped.
 	 *
 	 * @param instances The instances to update on the database.
-	 * @throws SQLException if the query cannot be executed due to database constraints
-	 *                      i.e. non-existing default value for field or an incorrect data type.
+	 * @throws SQLException          if the query cannot be executed due to database constraints
+	 *                               i.e. non-existing default value for field or an incorrect data type.
+	 * @throws IllegalStateException if a column which was not selected when an entity was read has been changed. No entity is updated in that case.
 	 */
 	public void update(List<T> instances) throws SQLException {
+		var changedInstances = new ArrayList<T>(instances.size());
+		var changedColumnsByInstance = new IdentityHashMap<T, List<ColumnMetadata>>(instances.size() * 4 / 3 + 1);
+		for (var instance : instances) {
+			var changedColumns = this.metadata.getChangedColumns(instance);
+			if (!changedColumns.isEmpty()) {
+				checkLoaded(instance, changedColumns);
+				changedInstances.add(instance);
+				changedColumnsByInstance.put(instance, changedColumns);
+			}
+		}
+
+		if (changedInstances.isEmpty()) {
+			return;
+		}
+
+		var batchSize = Math.max(1, DBConnection.BATCH_SIZE);
 		try (var connection = new DBConnection()) {
-			for (T instance : instances) {
-				connection.update(updateQuery(instance));
+			connection.runInTransaction(() -> {
+				for (int i = 0; i < changedInstances.size(); i += batchSize) {
+					updateBatch(connection, changedInstances.subList(i, Math.min(i + batchSize, changedInstances.size())), changedColumnsByInstance);
+				}
+			});
+
+			var ids = new ArrayList<Long>(changedInstances.size());
+			for (var instance : changedInstances) {
+				this.metadata.takeSnapshot(instance);
+				ids.add(instance.getId());
 			}
 
-			loggingModule.logf("%s were successfully updated.", this.type.getSimpleName());
+			invalidateEntityCache(ids);
+
+			loggingModule.logf("%d of %d %s were successfully updated.", changedInstances.size(), instances.size(), this.type.getSimpleName());
 		}
 	}
 
-	private String updateQuery(T instance) {
+	/**
+	 * Updates a batch of entities. Entities which use the database-default for different columns result in different UPDATE statements,
+	 * so every distinct statement is executed as its own JDBC batch.
+	 *
+	 * @param connection     The connection to update the entities with.
+	 * @param batch          The entities to update.
+	 * @param changedColumns The changed columns of every entity, as determined before the update started.
+	 * @throws SQLException if the entities cannot be updated.
+	 */
+	private void updateBatch(DBConnection connection, List<T> batch, Map<T, List<ColumnMetadata>> changedColumns) throws SQLException {
+		var parameterGroups = new LinkedHashMap<String, List<Object[]>>();
+		for (var instance : batch) {
+			var query = updateQuery(instance, changedColumns.get(instance));
+			parameterGroups.computeIfAbsent(query.getSql(), sql -> new ArrayList<>()).add(query.getParameters());
+		}
+
+		for (var group : parameterGroups.entrySet()) {
+			connection.executeBatch(group.getKey(), group.getValue());
+		}
+	}
+
+	/**
+	 * Creates an UPDATE statement for an entity.
+	 *
+	 * @param instance The entity to update.
+	 * @param columns  The columns to write.
+	 * @return The UPDATE statement with the values of the columns as parameters.
+	 */
+	private SqlFragment updateQuery(T instance, List<ColumnMetadata> columns) {
 		var updateQuery = new StringBuilder("update `").append(this.tableName).append("` set ");
 		var fieldJoiner = new StringJoiner(", ");
-		fieldModule.getEntityFields(instance.getClass(), BaseEntity.class).forEach(field -> {
-			field.setAccessible(true);
-			var sqlValue = getFieldValue(field, instance) == null && annotationModule.hasAnnotation(field, DefaultIfNull.class, DefaultIfNull::onUpdate) ? "default" : getSqlValue(field, instance);
-			fieldJoiner.add(String.format("`%s` = %s", tableModule.getColumnName(field), sqlValue));
-		});
+		var parameters = new ArrayList<>();
+		for (var column : columns) {
+			var value = column.getValue(instance);
+			if (value == null && column.isDefaultIfNullOnUpdate()) {
+				fieldJoiner.add(String.format("`%s` = default", column.getColumnName()));
+				continue;
+			}
 
-		return updateQuery.append(fieldJoiner.toString()).append(String.format(" where %s = ", this.idAccess)).append(instance.getId()).toString();
+			fieldJoiner.add(String.format("`%s` = ?", column.getColumnName()));
+			parameters.add(value);
+		}
+
+		parameters.add(instance.getId());
+		return new SqlFragment(updateQuery.append(fieldJoiner.toString()).append(String.format(" where %s = ?", this.idAccess)).toString(), parameters.toArray());
 	}
 
 	/**
@@ -521,11 +891,16 @@ public class BaseService<T extends BaseEntity> {
 	 *                      i.e. non-existing default value for field or an incorrect data type.
 	 */
 	public <R> void update(SqlPredicate<T> condition, SqlFunction<T, R> column, R newValue) throws SQLException {
-		var query = String.format("update `%s` set %s = %s where %s;", this.tableName, Lambda2Sql.toSql(column, this.tableName), convertToSql(newValue), Lambda2Sql.toSql(condition, this.tableName));
+		var sqlCondition = lambdaModule.toSql(condition, this.tableName);
+		var query = String.format("update `%s` set %s = ? where %s;", this.tableName, lambdaModule.toSql(column, this.tableName).getSql(), sqlCondition.getSql());
+		var parameters = new ArrayList<>();
+		parameters.add(newValue);
+		parameters.addAll(Arrays.asList(sqlCondition.getParameters()));
 
 		try (var connection = new DBConnection()) {
-			connection.update(query);
-			loggingModule.logf("Column-specific update for table '%s' was successful.", tableModule.getTableName(this.type));
+			connection.update(query, parameters.toArray());
+			invalidateEntityCache();
+			loggingModule.logf("Column-specific update for table '%s' was successful.", this.tableName);
 		}
 	}
 
@@ -561,15 +936,16 @@ public class BaseService<T extends BaseEntity> {
 	 * @throws SQLException for example because of a foreign key constraint.
 	 */
 	public void delete(List<T> entities) throws SQLException {
-		var joiner = new StringJoiner(", ", "(", ")");
-		for (T entity : entities) {
-			joiner.add(Long.toString(entity.getId()));
+		var ids = new Object[entities.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = entities.get(i).getId();
 		}
 
-		var joinedIds = joiner.toString();
 		try (var connection = new DBConnection()) {
-			connection.update(String.format("delete from `%s` where %s in %s", this.tableName, this.idAccess, joinedIds));
-			loggingModule.logf("%s with ids %s successfully deleted!", this.type.getSimpleName(), joinedIds);
+			connection.update(String.format("delete from `%s` where %s in %s", this.tableName, this.idAccess, createPlaceholders(ids.length)), ids);
+			invalidateEntityCache(entities.stream().map(BaseEntity::getId).collect(Collectors.toList()));
+
+			loggingModule.logf("%s with ids %s successfully deleted!", this.type.getSimpleName(), Arrays.toString(ids));
 		}
 	}
 
@@ -607,8 +983,10 @@ public class BaseService<T extends BaseEntity> {
 	 * @throws SQLException in case the condition cannot be applied or if a foreign key constraint fails.
 	 */
 	public void delete(SqlPredicate<T> predicate) throws SQLException {
+		var condition = lambdaModule.toSql(predicate, this.tableName);
 		try (var connection = new DBConnection()) {
-			connection.update(String.format("delete from `%s` where %s;", this.tableName, Lambda2Sql.toSql(predicate, this.tableName)));
+			connection.update(String.format("delete from `%s` where %s;", this.tableName, condition.getSql()), condition.getParameters());
+			invalidateEntityCache();
 			loggingModule.logf("%s successfully deleted!", this.type.getSimpleName());
 		}
 	}
@@ -623,6 +1001,7 @@ public class BaseService<T extends BaseEntity> {
 	public void truncateTable() throws SQLException {
 		try (var connection = new DBConnection()) {
 			connection.update(String.format("truncate table `%s`;", this.tableName));
+			invalidateEntityCache();
 			loggingModule.logf("Table %s was successfully truncated.", this.tableName);
 		}
 	}
@@ -645,103 +1024,65 @@ public class BaseService<T extends BaseEntity> {
 	 * @return An INSERT statement up to the VALUES keyword.
 	 */
 	private StringBuilder createInsertHeader() {
-		return new StringBuilder("insert into `").append(this.tableName).append("` ").append(fieldModule.getEntityFields(this.type)
-				.stream().map(field -> String.format("`%s`", tableModule.getColumnName(field)))
+		return new StringBuilder("insert into `").append(this.tableName).append("` ").append(this.metadata.getColumns()
+				.stream().map(column -> String.format("`%s`", column.getColumnName()))
 				.collect(Collectors.joining(", ", "(", ")"))).append(" values ");
 	}
 
 	/**
-	 * Gets a field value from an entity and handles the checked exception.
-	 *
-	 * @param entityField    The field to get the value for.
-	 * @param entityInstance The entity to get the value from.
-	 * @return The value of the field in the entity.
-	 */
-	private Object getFieldValue(Field entityField, T entityInstance) {
-		try {
-			return entityField.get(entityInstance);
-		} catch (IllegalAccessException e) {
-			throw new IllegalEntityFieldAccessException(entityField.getName(), this.type.getSimpleName(), e.getMessage());
-		}
-	}
-
-	/**
-	 * Returns a field value from an entity in its SQL equivalent.
-	 *
-	 * @param entityField    The value's field.
-	 * @param entityInstance The entity containing the value
-	 * @return A {@code String} representing the SQL value of the entity field.
-	 */
-	private String getSqlValue(Field entityField, T entityInstance) {
-		return convertToSql(getFieldValue(entityField, entityInstance));
-	}
-
-	/**
-	 * Converts a Java object to its SQL representation.
+	 * Creates the VALUES part of an INSERT statement for a single entity.
+	 * The values of the entity are not written into the SQL, but added to the parameters of the statement.
 	 *
-	 * @param value The value to convert.
-	 * @return The SQL version of a Java value.
+	 * @param instance   The entity to create the row for.
+	 * @param parameters The parameters of the INSERT statement the values of this entity are added to.
+	 * @return The row containing a placeholder for every value of the entity.
 	 */
-	private String convertToSql(Object value) {
-		if (value == null) {
-			return "null";
-		}
-
-		if (value instanceof String) {
-			return "'" + value + "'";
-		}
-
-		if (value instanceof Boolean) {
-			var bool = (boolean) value;
-			return bool ? "1" : "0";
-		}
-
-		if (value instanceof LocalDateTime) {
-			var dateTime = (LocalDateTime) value;
-			return "'" + DATE_TIME_FORMATTER.format(dateTime) + "'";
-		}
-
-		if (value instanceof LocalDate) {
-			var date = (LocalDate) value;
-			return "'" + DATE_FORMATTER.format(date) + "'";
-		}
+	private String createInsertRow(T instance, List<Object> parameters) {
+		var joiner = new StringJoiner(", ", "(", ")");
+		for (var column : this.metadata.getColumnsWithoutId()) {
+			var value = column.getValue(instance);
+			if (value == null && column.isDefaultIfNullOnCreate()) {
+				joiner.add("default");
+				continue;
+			}
 
-		if (value instanceof LocalTime) {
-			var time = (LocalTime) value;
-			return "'" + TIME_FORMATTER.format(time) + "'";
+			joiner.add("?");
+			parameters.add(value);
 		}
 
-		return value.toString();
+		//For using the default database setting for the id.
+		joiner.add("default");
+		return joiner.toString();
 	}
 
 	/**
-	 * An overload of the {@link #createPaginationQueries(SqlPredicate, int)} method.
-	 * It creates queries for getting all the values from a table.
+	 * Makes sure that an update does not overwrite a column which was not selected when the entity was read using {@link EntityQuery#select(SqlFunction[])}.
+	 * Its value on the database is unknown, so a change to it is most likely based on the default value of its field.
 	 *
-	 * @param entriesPerPage The number of entries to be displayed on each page.
-	 * @return A list of queries containing the definitions for getting specific pages.
+	 * @param instance       The entity to update.
+	 * @param changedColumns The columns which would be written.
+	 * @throws IllegalStateException if one of the columns was not loaded.
 	 */
-	private List<EntityQuery<T>> createPaginationQueries(int entriesPerPage) {
-		return createPaginationQueries(x -> true, entriesPerPage);
+	private void checkLoaded(T instance, List<ColumnMetadata> changedColumns) {
+		for (var column : changedColumns) {
+			if (!this.metadata.isLoaded(instance, column)) {
+				throw new IllegalStateException(String.format("Column %s of %s with id %d was not selected when the entity was read and cannot be updated through it. Load the column first or update it directly.", column.getColumnName(), this.type.getSimpleName(), instance.getId()));
+			}
+		}
 	}
 
 	/**
-	 * Creates queries that define the queries for specific pages. Note that this does not execute the queries yet.
+	 * Creates a list of placeholders which can be used with an IN condition.
 	 *
-	 * @param predicate      A filter to narrow down the queries.
-	 * @param entriesPerPage The number of entries to be displayed on each page.
-	 * @return A list of queries containing the definitions for getting specific pages.
+	 * @param count The amount of placeholders.
+	 * @return The placeholders in parentheses, for example {@code (?, ?, ?)}.
 	 */
-	private List<EntityQuery<T>> createPaginationQueries(SqlPredicate<T> predicate, int entriesPerPage) {
-		var count = this.count(predicate);
-		var numberOfPages = Math.ceil(count / (double) entriesPerPage);
-		var queries = new ArrayList<EntityQuery<T>>((int) numberOfPages);
-		for (int i = 0; i < numberOfPages; i++) {
-			var offset = i * entriesPerPage;
-			//TODO Refactor the limit-offset-combo for performance in bigger data sets.
-			queries.add(getMultiple(predicate).limit(entriesPerPage, offset));
+	protected String createPlaceholders(int count) {
+		var joiner = new StringJoiner(", ", "(", ")");
+		for (int i = 0; i < count; i++) {
+			joiner.add("?");
 		}
 
-		return queries;
+		return joiner.toString();
 	}
-}
\ No newline at end of file
+}
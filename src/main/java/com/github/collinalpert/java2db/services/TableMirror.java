@@ -0,0 +1,167 @@
+package com.github.collinalpert.java2db.services;
+
+import com.github.collinalpert.java2db.database.EntityMetadata;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+import com.github.collinalpert.java2db.modules.CachingModule;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Holds all rows of a small table in memory, so lookups by id or code do not have to query the database.
+ * The rows are loaded when they are first needed. After the refresh interval has passed, the rows are reloaded in the background,
+ * while the previous rows are still used until the reload has finished. After the table was changed, the next lookup waits for the reload.
+ * Every lookup returns copies of the rows, so they can be changed without affecting the mirror.
+ * <p>
+ * Codes are looked up exactly as they are stored. Since the collation of the code column may also match other spellings of a code,
+ * a code which is not found in memory should still be looked up in the database.
+ *
+ * @param <T> The type of the entities of the table.
+ * @author Collin Alpert
+ */
+class TableMirror<T extends BaseEntity> {
+
+	private static final String SNAPSHOT_NAME = "rows";
+
+	private final EntityMetadata metadata;
+	private final Supplier<List<T>> loader;
+	private final Function<T, String> codeGetter;
+	private final Duration refreshInterval;
+
+	/**
+	 * Holds the current snapshot of the table as its only entry, which takes care of the expiration and of loading it only once at a time.
+	 */
+	private final CachingModule<Snapshot> snapshots;
+
+	/**
+	 * Creates a mirror of the table of a service.
+	 *
+	 * @param service         The service whose queries read the rows of the table.
+	 * @param codeGetter      Gets the code of a row. Codes are expected to be unique.
+	 * @param refreshInterval The duration after which the rows are reloaded.
+	 */
+	TableMirror(BaseService<T> service, Function<T, String> codeGetter, Duration refreshInterval) {
+		this.metadata = EntityMetadata.of(service.type);
+		this.loader = () -> service.createQuery().toList();
+		this.codeGetter = codeGetter;
+		this.refreshInterval = refreshInterval;
+		this.snapshots = new CachingModule<>(1);
+	}
+
+	/**
+	 * Answers a request from a mirror if mirroring is enabled, or otherwise from the database.
+	 *
+	 * @param mirror   The mirror of a service, or {@code null} if mirroring is not enabled.
+	 * @param mirrored Answers the request from the mirror.
+	 * @param fallback Answers the request from the database.
+	 * @param <T>      The type of the entities of the table.
+	 * @param <R>      The type of the answer.
+	 * @return The answer to the request.
+	 */
+	static <T extends BaseEntity, R> R query(TableMirror<T> mirror, Function<TableMirror<T>, R> mirrored, Supplier<R> fallback) {
+		return mirror == null ? fallback.get() : mirrored.apply(mirror);
+	}
+
+	/**
+	 * Looks an entity up by its code in a mirror. If mirroring is not enabled or the code is not found in memory,
+	 * the database is queried, since the collation of the code column may match a differently spelled code.
+	 *
+	 * @param mirror   The mirror of a service, or {@code null} if mirroring is not enabled.
+	 * @param code     The code of the entity.
+	 * @param fallback Reads the entity from the database.
+	 * @param <T>      The type of the entities of the table.
+	 * @return The entity with the code, if it exists.
+	 */
+	static <T extends BaseEntity> Optional<T> getByCode(TableMirror<T> mirror, String code, Supplier<Optional<T>> fallback) {
+		var mirroredEntity = mirror == null ? Optional.<T>empty() : mirror.getByCode(code);
+		return mirroredEntity.or(fallback);
+	}
+
+	/**
+	 * Discards the rows of a mirror, if mirroring is enabled.
+	 *
+	 * @param mirror The mirror of a service, or {@code null} if mirroring is not enabled.
+	 */
+	static void invalidate(TableMirror<?> mirror) {
+		if (mirror != null) {
+			mirror.invalidate();
+		}
+	}
+
+	List<T> getAll() {
+		var rows = getSnapshot().rows;
+		var copies = new ArrayList<T>(rows.size());
+		for (var row : rows) {
+			copies.add(metadata.copy(row));
+		}
+
+		return copies;
+	}
+
+	Optional<T> getById(long id) {
+		return Optional.ofNullable(getSnapshot().rowsById.get(id)).map(metadata::copy);
+	}
+
+	Optional<T> getByCode(String code) {
+		if (code == null) {
+			return Optional.empty();
+		}
+
+		return Optional.ofNullable(getSnapshot().rowsByCode.get(code)).map(metadata::copy);
+	}
+
+	long count() {
+		return getSnapshot().rows.size();
+	}
+
+	boolean any() {
+		return !getSnapshot().rows.isEmpty();
+	}
+
+	/**
+	 * Discards the rows in memory, so they are reloaded the next time they are needed.
+	 */
+	void invalidate() {
+		snapshots.invalidate();
+	}
+
+	private Snapshot getSnapshot() {
+		return snapshots.getOrAdd(SNAPSHOT_NAME, () -> new Snapshot(loader.get()), refreshInterval, refreshInterval);
+	}
+
+	/**
+	 * The rows of the table at one point in time, indexed by their id and their code.
+	 */
+	private class Snapshot {
+
+		private final List<T> rows;
+		private final Map<Long, T> rowsById;
+		private final Map<String, T> rowsByCode;
+
+		private Snapshot(List<T> loadedRows) {
+			var rows = new ArrayList<T>(loadedRows.size());
+			var rowsById = new HashMap<Long, T>();
+			var rowsByCode = new HashMap<String, T>();
+			for (var loadedRow : loadedRows) {
+				var row = metadata.copy(loadedRow);
+				rows.add(row);
+				rowsById.put(row.getId(), row);
+				var code = codeGetter.apply(row);
+				if (code != null) {
+					rowsByCode.putIfAbsent(code, row);
+				}
+			}
+
+			this.rows = Collections.unmodifiableList(rows);
+			this.rowsById = rowsById;
+			this.rowsByCode = rowsByCode;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.github.collinalpert.java2db.utilities;
+
+import com.github.collinalpert.java2db.database.DBConnection;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs the asynchronous operations of Java2DB. Since these operations block while they wait for the database,
+ * they are not run on the common {@link java.util.concurrent.ForkJoinPool}, but on a dedicated executor.
+ * Per default, this is a pool with as many threads as the connection pool has connections, since more threads would only wait for a connection.
+ * A different executor can be set using {@link #setExecutor(Executor)}, or every operation can run on its own virtual thread using {@link #useVirtualThreads()}.
+ *
+ * @author Collin Alpert
+ */
+public final class AsyncExecutor {
+
+	private static final LongAdder queuedTasks;
+	private static final LongAdder activeTasks;
+	private static final LongAdder completedTasks;
+	private static volatile Executor executor;
+
+	static {
+		queuedTasks = new LongAdder();
+		activeTasks = new LongAdder();
+		completedTasks = new LongAdder();
+	}
+
+	private AsyncExecutor() {
+	}
+
+	/**
+	 * Gets the executor asynchronous operations are run on. Tasks passed to it directly are included in the metrics of this class.
+	 * If no executor has been set, the default executor is created using the current {@link DBConnection#MAX_POOL_SIZE}.
+	 *
+	 * @return The executor for asynchronous operations.
+	 */
+	public static Executor getExecutor() {
+		var current = executor;
+		if (current != null) {
+			return current;
+		}
+
+		synchronized (AsyncExecutor.class) {
+			if (executor == null) {
+				executor = createDefaultExecutor();
+			}
+
+			return executor;
+		}
+	}
+
+	/**
+	 * Sets the executor to run asynchronous operations on. It should allow for blocking tasks, since the operations wait for the database.
+	 * This has to be done before the first asynchronous operation is started, since the default executor is not shut down when it is replaced.
+	 *
+	 * @param executor The executor for asynchronous operations.
+	 */
+	public static void setExecutor(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("The executor for asynchronous operations cannot be null.");
+		}
+
+		AsyncExecutor.executor = runnable -> execute(executor, runnable);
+	}
+
+	/**
+	 * Runs every asynchronous operation on its own virtual thread, if the Java runtime supports virtual threads.
+	 * This allows for a very large amount of pending operations without using up platform threads.
+	 * To not overwhelm the connection pool, only as many operations as the pool has connections run at the same time,
+	 * while the others wait on their virtual threads. Like {@link #setExecutor(Executor)}, this has to be done before the first asynchronous operation is started.
+	 *
+	 * @return {@code True} if virtual threads are used from now on, {@code false} if the runtime does not support them and the current executor is kept.
+	 */
+	public static boolean useVirtualThreads() {
+		final Executor virtualThreadExecutor;
+		try {
+			// Virtual threads are available since Java 21, while this library targets Java 11, so they can only be accessed reflectively.
+			virtualThreadExecutor = (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+
+		var permits = new Semaphore(Math.max(1, DBConnection.MAX_POOL_SIZE), true);
+		setExecutor(runnable -> virtualThreadExecutor.execute(() -> {
+			permits.acquireUninterruptibly();
+			try {
+				runnable.run();
+			} finally {
+				permits.release();
+			}
+		}));
+
+		return true;
+	}
+
+	/**
+	 * Runs a supplier asynchronously.
+	 *
+	 * @param supplier The supplier to run.
+	 * @param <T>      The type of the result.
+	 * @return The asynchronous operation.
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+		return CompletableFuture.supplyAsync(supplier, getExecutor());
+	}
+
+	/**
+	 * Runs an action asynchronously.
+	 *
+	 * @param runnable The action to run.
+	 * @return The asynchronous operation.
+	 */
+	public static CompletableFuture<Void> runAsync(Runnable runnable) {
+		return CompletableFuture.runAsync(runnable, getExecutor());
+	}
+
+	/**
+	 * @return The amount of tasks which have been submitted but have not started yet.
+	 */
+	public static long getQueuedTasks() {
+		return queuedTasks.sum();
+	}
+
+	/**
+	 * @return The amount of tasks which are currently running.
+	 */
+	public static long getActiveTasks() {
+		return activeTasks.sum();
+	}
+
+	/**
+	 * @return The amount of tasks which have finished, successfully or not.
+	 */
+	public static long getCompletedTasks() {
+		return completedTasks.sum();
+	}
+
+	private static Executor createDefaultExecutor() {
+		var threadCounter = new AtomicInteger();
+		var threads = Math.max(1, DBConnection.MAX_POOL_SIZE);
+		var pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+			var thread = new Thread(runnable, "java2db-async-" + threadCounter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		pool.allowCoreThreadTimeOut(true);
+		return runnable -> execute(pool, runnable);
+	}
+
+	/**
+	 * Passes a task to an executor while keeping track of its state for the metrics.
+	 *
+	 * @param executor The executor to run the task on.
+	 * @param runnable The task.
+	 */
+	private static void execute(Executor executor, Runnable runnable) {
+		queuedTasks.increment();
+		try {
+			executor.execute(() -> {
+				queuedTasks.decrement();
+				activeTasks.increment();
+				try {
+					runnable.run();
+				} finally {
+					activeTasks.decrement();
+					completedTasks.increment();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			queuedTasks.decrement();
+			throw e;
+		}
+	}
+}
@@ -2,9 +2,15 @@ package com.github.collinalpert.java2db.utilities;
 
 import com.github.collinalpert.java2db.exceptions.AsynchronousOperationException;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Collin Alpert
@@ -86,4 +92,98 @@ public class Utilities {
 			throw new RuntimeException("Underlying method threw an exception.", e);
 		}
 	}
+
+	/**
+	 * Creates a {@code Stream} which lazily reads the rows of a {@code ResultSet}.
+	 * A row is only read from the database when the stream requests the next element.
+	 * The {@code ResultSet} is closed when the stream is exhausted or closed.
+	 *
+	 * @param set       The {@code ResultSet} to read.
+	 * @param rowReader Reads the row the {@code ResultSet} is currently positioned at.
+	 * @param <T>       The type of the elements in the stream.
+	 * @return A {@code Stream} of the rows of the {@code ResultSet}.
+	 */
+	public static <T> Stream<T> stream(ResultSet set, ThrowableSupplier<T, SQLException> rowReader) {
+		var closeAction = once(() -> {
+			try {
+				set.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		});
+
+		var spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				try {
+					if (set.isClosed() || !set.next()) {
+						closeAction.run();
+						return false;
+					}
+
+					action.accept(rowReader.fetch());
+					return true;
+				} catch (SQLException e) {
+					closeAction.run();
+					e.printStackTrace();
+					throw new RuntimeException("Underlying method threw an exception.", e);
+				}
+			}
+		};
+
+		return StreamSupport.stream(spliterator, false).onClose(closeAction);
+	}
+
+	/**
+	 * Attaches an action to a {@code Stream} which is run once the stream is either exhausted or closed, whichever happens first.
+	 * This is used to release resources a lazily evaluated stream depends on, like a database connection.
+	 *
+	 * @param stream      The {@code Stream} to attach the action to.
+	 * @param closeAction The action which releases the resources.
+	 * @param <T>         The type of the elements in the stream.
+	 * @return A {@code Stream} with the same elements which runs the action when it is done.
+	 */
+	public static <T> Stream<T> onCompletion(Stream<T> stream, Runnable closeAction) {
+		var action = once(closeAction);
+		var source = stream.spliterator();
+		var spliterator = new Spliterators.AbstractSpliterator<T>(source.estimateSize(), source.characteristics() & ~Spliterator.SIZED & ~Spliterator.SUBSIZED) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> consumer) {
+				try {
+					if (source.tryAdvance(consumer)) {
+						return true;
+					}
+				} catch (RuntimeException e) {
+					action.run();
+					throw e;
+				}
+
+				action.run();
+				return false;
+			}
+		};
+
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				stream.close();
+			} finally {
+				action.run();
+			}
+		});
+	}
+
+	/**
+	 * Wraps a {@code Runnable} so it is only executed the first time it is run.
+	 *
+	 * @param runnable The {@code Runnable} to wrap.
+	 * @return A {@code Runnable} which executes the original one at most once.
+	 */
+	private static Runnable once(Runnable runnable) {
+		var hasRun = new AtomicBoolean();
+		return () -> {
+			if (hasRun.compareAndSet(false, true)) {
+				runnable.run();
+			}
+		};
+	}
 }
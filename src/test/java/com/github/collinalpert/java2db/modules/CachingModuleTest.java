@@ -0,0 +1,178 @@
+package com.github.collinalpert.java2db.modules;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Collin Alpert
+ */
+class CachingModuleTest {
+
+	private static final Duration LONG = Duration.ofMinutes(10);
+
+	@Test
+	void evictsLeastRecentlyUsedEntriesByWeight() {
+		var cache = new CachingModule<String>(10, String::length);
+		cache.getOrAdd("a", () -> "aaaa", LONG);
+		cache.getOrAdd("b", () -> "bbbb", LONG);
+
+		// Reading "a" makes "b" the least recently used entry.
+		cache.getOrAdd("a", () -> "other", LONG);
+		cache.getOrAdd("c", () -> "cccc", LONG);
+
+		assertTrue(cache.contains("a"));
+		assertFalse(cache.contains("b"));
+		assertTrue(cache.contains("c"));
+		assertEquals(1, cache.getStatistics().getEvictions());
+
+		// An entry which is heavier than the whole cache makes room for itself.
+		cache.getOrAdd("d", () -> "dddddddddd", LONG);
+		assertEquals(1, cache.size());
+		assertTrue(cache.contains("d"));
+	}
+
+	@Test
+	void doesNotStoreValuesHeavierThanTheCache() {
+		var cache = new CachingModule<String>(3, String::length);
+		cache.getOrAdd("a", () -> "aa", LONG);
+		assertEquals("dddd", cache.getOrAdd("d", () -> "dddd", LONG));
+
+		assertFalse(cache.contains("d"));
+		assertTrue(cache.contains("a"));
+	}
+
+	@Test
+	void reloadsExpiredEntries() throws InterruptedException {
+		var cache = new CachingModule<Integer>(10);
+		var loads = new AtomicInteger();
+		assertEquals(1, cache.getOrAdd("a", loads::incrementAndGet, Duration.ofMillis(50)));
+		assertEquals(1, cache.getOrAdd("a", loads::incrementAndGet, Duration.ofMillis(50)));
+
+		Thread.sleep(100);
+		assertFalse(cache.contains("a"));
+		assertEquals(2, cache.getOrAdd("a", loads::incrementAndGet, Duration.ofMillis(50)));
+		assertEquals(1, cache.getStatistics().getExpirations());
+	}
+
+	@Test
+	void returnsStaleValueWhileReloadingInTheBackground() throws InterruptedException {
+		var cache = new CachingModule<Integer>(10);
+		var loads = new AtomicInteger();
+		var expiration = Duration.ofMillis(50);
+		var staleWindow = Duration.ofMinutes(1);
+		assertEquals(1, cache.getOrAdd("a", loads::incrementAndGet, expiration, staleWindow));
+
+		Thread.sleep(100);
+		assertEquals(1, cache.getOrAdd("a", loads::incrementAndGet, expiration, staleWindow));
+
+		var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!cache.contains("a") && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertEquals(2, cache.getOrAdd("a", loads::incrementAndGet, expiration, staleWindow));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void discardsValuesAfterTheStaleWindow() throws InterruptedException {
+		var cache = new CachingModule<Integer>(10);
+		var loads = new AtomicInteger();
+		var expiration = Duration.ofMillis(30);
+		var staleWindow = Duration.ofMillis(30);
+		assertEquals(1, cache.getOrAdd("a", loads::incrementAndGet, expiration, staleWindow));
+
+		Thread.sleep(100);
+		assertEquals(2, cache.getOrAdd("a", loads::incrementAndGet, expiration, staleWindow));
+	}
+
+	@Test
+	void loadsConcurrentMissesOnlyOnce() throws Exception {
+		var cache = new CachingModule<Integer>(10);
+		var loads = new AtomicInteger();
+		var threads = 8;
+		var start = new CountDownLatch(1);
+		var executor = Executors.newFixedThreadPool(threads);
+		try {
+			var results = new ArrayList<CompletableFuture<Integer>>();
+			for (int i = 0; i < threads; i++) {
+				results.add(CompletableFuture.supplyAsync(() -> {
+					await(start);
+					return cache.getOrAdd("a", () -> {
+						sleep(200);
+						return loads.incrementAndGet();
+					}, LONG);
+				}, executor));
+			}
+
+			start.countDown();
+			for (var result : results) {
+				assertEquals(1, result.get(5, TimeUnit.SECONDS));
+			}
+
+			assertEquals(1, loads.get());
+			assertEquals(1, cache.getStatistics().getMisses());
+			assertEquals(threads - 1, cache.getStatistics().getHits());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void doesNotStoreValuesLoadedWhileBeingInvalidated() throws Exception {
+		var cache = new CachingModule<String>(10);
+		var loading = new CountDownLatch(1);
+		var invalidated = new CountDownLatch(1);
+		var load = CompletableFuture.supplyAsync(() -> cache.getOrAdd("a", () -> {
+			loading.countDown();
+			await(invalidated);
+			return "outdated";
+		}, LONG));
+
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		cache.invalidate("a");
+		invalidated.countDown();
+
+		assertEquals("outdated", load.get(5, TimeUnit.SECONDS));
+		assertFalse(cache.contains("a"));
+		assertEquals("current", cache.getOrAdd("a", () -> "current", LONG));
+	}
+
+	@Test
+	void invalidatesAllEntries() {
+		var cache = new CachingModule<String>(10);
+		cache.getOrAdd("a", () -> "a", LONG);
+		cache.getOrAdd("b", () -> "b", LONG);
+		cache.invalidate();
+
+		assertEquals(0, cache.size());
+		assertEquals("new", cache.getOrAdd("a", () -> "new", LONG));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
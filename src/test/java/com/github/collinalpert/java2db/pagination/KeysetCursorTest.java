@@ -0,0 +1,114 @@
+package com.github.collinalpert.java2db.pagination;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Collin Alpert
+ */
+class KeysetCursorTest {
+
+	@Test
+	void roundTripsNullKey() {
+		var cursor = roundTrip(null, 7);
+		assertNull(cursor.getKey());
+		assertEquals(7, cursor.getId());
+	}
+
+	@Test
+	void roundTripsIntegralKeysAsLong() {
+		assertEquals(42L, roundTrip(42L, 1).getKey());
+		assertEquals(42L, roundTrip(42, 1).getKey());
+		assertEquals(42L, roundTrip((short) 42, 1).getKey());
+		assertEquals(42L, roundTrip((byte) 42, 1).getKey());
+		assertEquals(Long.MIN_VALUE, roundTrip(Long.MIN_VALUE, 1).getKey());
+	}
+
+	@Test
+	void roundTripsDoubleKey() {
+		assertEquals(0.1, roundTrip(0.1, 1).getKey());
+		assertEquals(-1.5E300, roundTrip(-1.5E300, 1).getKey());
+	}
+
+	@Test
+	void roundTripsFloatKeyAsFloat() {
+		var key = roundTrip(0.1f, 1).getKey();
+		assertEquals(Float.class, key.getClass());
+		assertEquals(0.1f, key);
+	}
+
+	@Test
+	void roundTripsBigDecimalKey() {
+		assertEquals(new BigDecimal("12345678901234567890.123400"), roundTrip(new BigDecimal("12345678901234567890.123400"), 1).getKey());
+	}
+
+	@Test
+	void roundTripsBooleanKey() {
+		assertEquals(true, roundTrip(true, 1).getKey());
+		assertEquals(false, roundTrip(false, 1).getKey());
+	}
+
+	@Test
+	void roundTripsStringKey() {
+		assertEquals("", roundTrip("", 1).getKey());
+		assertEquals("a|b|ünïcode", roundTrip("a|b|ünïcode", 1).getKey());
+	}
+
+	@Test
+	void roundTripsDateAndTimeKeys() {
+		assertEquals(LocalDateTime.of(2019, 4, 1, 13, 37, 21, 123_000_000), roundTrip(LocalDateTime.of(2019, 4, 1, 13, 37, 21, 123_000_000), 1).getKey());
+		assertEquals(LocalDate.of(2019, 4, 1), roundTrip(LocalDate.of(2019, 4, 1), 1).getKey());
+		assertEquals(LocalTime.of(13, 37), roundTrip(LocalTime.of(13, 37), 1).getKey());
+	}
+
+	@Test
+	void rejectsUnsupportedKeyType() {
+		assertThrows(IllegalArgumentException.class, () -> new KeysetCursor(new Object(), 1).toToken());
+	}
+
+	@Test
+	void rejectsTokenWhichIsNotBase64() {
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken("not a token!"));
+	}
+
+	@Test
+	void rejectsMalformedTokens() {
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("L|1")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("LL|1|2")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("L|x|2")));
+	}
+
+	@Test
+	void rejectsTamperedTokens() {
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("X|1|2")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("L|1|two")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("F|1|two")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("R|1|two")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("M|1|two")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("B|1|yes")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("T|1|2019-13-01T00:00")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("D|1|yesterday")));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.fromToken(encode("H|1|25:00")));
+	}
+
+	private static KeysetCursor roundTrip(Object key, long id) {
+		var cursor = KeysetCursor.fromToken(new KeysetCursor(key, id).toToken());
+		assertEquals(id, cursor.getId());
+		return cursor;
+	}
+
+	private static String encode(String plain) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,158 @@
+package com.github.collinalpert.java2db.queries;
+
+import com.github.collinalpert.java2db.annotations.ForeignKeyEntity;
+import com.github.collinalpert.java2db.entities.BaseEntity;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Collin Alpert
+ */
+class FetchPlanTest {
+
+	@Test
+	void loadsEverythingPerDefault() {
+		var plan = FetchPlan.of(Person.class);
+
+		assertTrue(plan.shouldLoad("address", 1));
+		assertTrue(plan.shouldLoad("address.country", 2));
+		assertTrue(plan.shouldLoad("employer", 1));
+	}
+
+	@Test
+	void includingNestedPathLoadsItsParents() {
+		var plan = FetchPlan.of(Person.class).include("address.country");
+
+		assertTrue(plan.shouldLoad("address", 1));
+		assertTrue(plan.shouldLoad("address.country", 2));
+		assertFalse(plan.shouldLoad("employer", 1));
+		assertFalse(plan.shouldLoad("employer.address", 2));
+	}
+
+	@Test
+	void includingParentDoesNotLoadItsChildren() {
+		var plan = FetchPlan.of(Person.class).include("address");
+
+		assertTrue(plan.shouldLoad("address", 1));
+		assertFalse(plan.shouldLoad("address.country", 2));
+		assertFalse(plan.shouldLoad("employer", 1));
+	}
+
+	@Test
+	void includesGetterPaths() {
+		assertEquals(FetchPlan.of(Person.class).include("employer"), FetchPlan.of(Person.class).include(Person::getEmployer));
+	}
+
+	@Test
+	void excludingPathExcludesItsChildren() {
+		var plan = FetchPlan.of(Person.class).exclude("address");
+
+		assertFalse(plan.shouldLoad("address", 1));
+		assertFalse(plan.shouldLoad("address.country", 2));
+		assertTrue(plan.shouldLoad("employer", 1));
+		assertTrue(plan.shouldLoad("employer.address.country", 3));
+	}
+
+	@Test
+	void exclusionsWinOverInclusions() {
+		var plan = FetchPlan.of(Person.class).include("address.country").exclude("address.country");
+
+		assertTrue(plan.shouldLoad("address", 1));
+		assertFalse(plan.shouldLoad("address.country", 2));
+	}
+
+	@Test
+	void limitsDepth() {
+		var plan = FetchPlan.of(Person.class).maxDepth(1);
+
+		assertTrue(plan.shouldLoad("address", 1));
+		assertFalse(plan.shouldLoad("address.country", 2));
+		assertFalse(FetchPlan.of(Person.class).maxDepth(0).shouldLoad("address", 1));
+		assertThrows(IllegalArgumentException.class, () -> FetchPlan.of(Person.class).maxDepth(-1));
+	}
+
+	@Test
+	void rejectsUnknownPaths() {
+		var plan = FetchPlan.of(Person.class);
+
+		assertThrows(IllegalArgumentException.class, () -> plan.include("country"));
+		assertThrows(IllegalArgumentException.class, () -> plan.exclude("address.city"));
+		assertThrows(IllegalArgumentException.class, () -> plan.fetch("address.", FetchStrategy.BATCH));
+		assertThrows(IllegalArgumentException.class, () -> plan.fetch("address", null));
+	}
+
+	@Test
+	void belowKeepsNestedParts() {
+		var plan = FetchPlan.of(Person.class).include("employer.address.country").exclude("address").fetch("employer.address", FetchStrategy.BATCH);
+		var below = plan.below(Company.class, "employer", 1);
+
+		assertEquals(FetchPlan.of(Company.class).include("address.country").fetch("address", FetchStrategy.BATCH), below);
+		assertEquals(Company.class, below.getType());
+		assertTrue(below.shouldLoad("address.country", 2));
+	}
+
+	@Test
+	void belowDoesNotLoadAnythingIfOnlyParentWasIncluded() {
+		var below = FetchPlan.of(Person.class).include("address").below(Address.class, "address", 1);
+
+		assertEquals(FetchPlan.of(Address.class).maxDepth(0), below);
+		assertFalse(below.shouldLoad("country", 1));
+	}
+
+	@Test
+	void belowLoadsEverythingIfNothingWasIncluded() {
+		var below = FetchPlan.of(Person.class).exclude("employer.address").below(Company.class, "employer", 1);
+
+		assertEquals(FetchPlan.of(Company.class).exclude("address"), below);
+		assertFalse(below.shouldLoad("address", 1));
+	}
+
+	@Test
+	void belowReducesMaxDepth() {
+		var below = FetchPlan.of(Person.class).maxDepth(3).below(Company.class, "employer", 1);
+
+		assertEquals(FetchPlan.of(Company.class).maxDepth(2), below);
+		assertTrue(below.shouldLoad("address.country", 2));
+		assertFalse(FetchPlan.of(Person.class).maxDepth(2).below(Company.class, "employer", 1).shouldLoad("address.country", 2));
+	}
+
+	static class Country extends BaseEntity {
+	}
+
+	static class Address extends BaseEntity {
+
+		private int countryId;
+
+		@ForeignKeyEntity("countryId")
+		private Country country;
+	}
+
+	static class Company extends BaseEntity {
+
+		private int addressId;
+
+		@ForeignKeyEntity("addressId")
+		private Address address;
+	}
+
+	static class Person extends BaseEntity {
+
+		private int addressId;
+
+		@ForeignKeyEntity("addressId")
+		private Address address;
+
+		private int employerId;
+
+		@ForeignKeyEntity("employerId")
+		private Company employer;
+
+		public Company getEmployer() {
+			return employer;
+		}
+	}
+}